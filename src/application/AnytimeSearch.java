@@ -0,0 +1,208 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Anytime Repairing A* (ARA*). The first pass is weighted A* with keys
+ * g + epsilon * h, which finds a path whose length is at most epsilon times optimal
+ * while settling only a fraction of the nodes plain A* would. Each further pass lowers
+ * epsilon and reuses the previous distances: only nodes whose distance improved after
+ * they were expanded (the INCONS set) are re-expanded. With epsilon at 1 the path is
+ * optimal.
+ *
+ * The search polls a {@link CancellationToken} and returns the best path found so far
+ * once it is cancelled or out of time. Progress is reported to a {@link Listener} at
+ * most once per progress interval, so a UI listener is not flooded with updates.
+ */
+public final class AnytimeSearch {
+    // Settled nodes between checks of the token and the progress clock
+    private static final int CHECK_INTERVAL = 256;
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    // Receives improved paths and throttled progress; called on the searching thread
+    public interface Listener {
+        // A better path, at most bound times longer than the shortest
+        void onPath(PathFinder.SearchResult result, double bound);
+
+        // Nodes settled so far over all passes, and the epsilon of the current pass
+        void onProgress(int settledNodes, double epsilon);
+    }
+
+    private final GraphSnapshot graph;
+    private final RoutingProfile profile;
+
+    private double initialEpsilon = 3.0;
+    private double epsilonStep = 0.5;
+    private long progressIntervalNanos = 100_000_000L;
+
+    private double bound = INF;
+
+    public AnytimeSearch(GraphSnapshot graph, RoutingProfile profile) {
+        this.graph = graph;
+        this.profile = profile;
+    }
+
+    public AnytimeSearch setInitialEpsilon(double epsilon) { this.initialEpsilon = Math.max(1.0, epsilon); return this; }
+    public AnytimeSearch setEpsilonStep(double step) { this.epsilonStep = step; return this; }
+    public AnytimeSearch setProgressInterval(long millis) { this.progressIntervalNanos = millis * 1_000_000L; return this; }
+
+    // Suboptimality bound of the last returned path: 1 means optimal, infinity means none
+    public double getBound() { return bound; }
+
+    /**
+     * Searches from start to end until the path is proven optimal or the token stops the
+     * search, and returns the best path found. The listener may be null.
+     */
+    public PathFinder.SearchResult search(Node start, Node end, CancellationToken token, Listener listener) {
+        bound = INF;
+        int s = graph.idOf(start);
+        int t = graph.idOf(end);
+        if (s < 0 || t < 0) return PathFinder.SearchResult.empty(0);
+        if (!profile.isPassable(graph.terrain(s)) || !profile.isPassable(graph.terrain(t))) {
+            return PathFinder.SearchResult.empty(0);
+        }
+        if (s == t) {
+            bound = 1.0;
+            List<Node> single = new ArrayList<>();
+            single.add(start);
+            return new PathFinder.SearchResult(single, 0.0, 0);
+        }
+        return new Run(s, t, token, listener).execute();
+    }
+
+    // State of one search; g-values and parents carry over between passes
+    private final class Run {
+        final int s;
+        final int t;
+        final CancellationToken token;
+        final Listener listener;
+        final double[] weights = graph.weights(profile);
+        final DistanceBound heuristic = PathFinder.distanceBound(graph, PathFinder.SearchMode.ALT, profile);
+
+        final double[] g = new double[graph.nodeCount()];
+        final double[] h = new double[graph.nodeCount()];   // cached heuristic, NaN until computed
+        final int[] parent = new int[graph.nodeCount()];
+        final int[] closedPass;                              // pass in which a node was expanded
+        final boolean[] inconsistent;
+        final List<Integer> incons = new ArrayList<>();
+        final List<Integer> touched = new ArrayList<>();     // nodes with a finite g
+        final IndexedMinHeap open = new IndexedMinHeap(graph.nodeCount());
+
+        int pass;
+        int settled;
+        double epsilon;
+        long lastProgress = System.nanoTime();
+        PathFinder.SearchResult best = PathFinder.SearchResult.empty(0);
+
+        Run(int s, int t, CancellationToken token, Listener listener) {
+            this.s = s;
+            this.t = t;
+            this.token = token;
+            this.listener = listener;
+            closedPass = new int[graph.nodeCount()];
+            inconsistent = new boolean[graph.nodeCount()];
+            Arrays.fill(g, INF);
+            Arrays.fill(h, Double.NaN);
+            Arrays.fill(parent, -1);
+        }
+
+        PathFinder.SearchResult execute() {
+            epsilon = heuristic == null ? 1.0 : initialEpsilon;
+            if (heuristic(s) == INF) return best;  // the bound proves t unreachable
+            g[s] = 0.0;
+            touched.add(s);
+            open.insertOrDecrease(s, key(s));
+
+            while (true) {
+                pass++;
+                if (!improvePath()) break;  // cancelled
+                if (g[t] != INF) publish();
+                // A completed pass at epsilon 1 is plain A*, so its path is optimal
+                if (bound <= 1.0 || epsilon <= 1.0 || (g[t] == INF && open.isEmpty())) break;
+
+                // Next pass: lower epsilon, requeue the inconsistent nodes and rekey the rest
+                epsilon = Math.max(1.0, epsilon - epsilonStep);
+                for (int v : incons) {
+                    inconsistent[v] = false;
+                    open.insertOrDecrease(v, key(v));
+                }
+                incons.clear();
+                for (int v : touched) {
+                    if (open.contains(v)) open.insertOrDecrease(v, key(v));  // keys only shrink
+                }
+            }
+            return best;
+        }
+
+        // One weighted A* pass; returns false if the token stopped it
+        boolean improvePath() {
+            while (!open.isEmpty() && open.peekKey() < g[t]) {
+                int u = open.poll();
+                closedPass[u] = pass;
+                if (++settled % CHECK_INTERVAL == 0) {
+                    if (token.isCancelled()) return false;
+                    reportProgress();
+                }
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    if (weights[e] == INF) continue;
+                    int v = graph.target(e);
+                    double d = g[u] + weights[e];
+                    if (d >= g[v]) continue;
+                    if (heuristic(v) == INF) continue;  // cannot reach the target
+                    if (g[v] == INF) touched.add(v);
+                    g[v] = d;
+                    parent[v] = u;
+                    if (closedPass[v] != pass) {
+                        open.insertOrDecrease(v, key(v));
+                    } else if (!inconsistent[v]) {
+                        inconsistent[v] = true;
+                        incons.add(v);
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Reports the current path with its proven suboptimality bound
+        void publish() {
+            double lower = INF;  // lower bound on the optimum from the unexpanded frontier
+            for (int v : touched) {
+                if (open.contains(v) || inconsistent[v]) lower = Math.min(lower, g[v] + heuristic(v));
+            }
+            double proven = lower == INF || g[t] <= lower ? 1.0 : g[t] / lower;
+            double newBound = Math.min(epsilon, proven);
+            if (best.isFound() && best.getDistance() <= g[t] && newBound >= bound) return;
+            bound = newBound;
+            best = new PathFinder.SearchResult(path(), g[t], settled);
+            if (listener != null) listener.onPath(best, bound);
+        }
+
+        void reportProgress() {
+            if (listener == null) return;
+            long now = System.nanoTime();
+            if (now - lastProgress < progressIntervalNanos) return;
+            lastProgress = now;
+            listener.onProgress(settled, epsilon);
+        }
+
+        double heuristic(int v) {
+            if (heuristic == null) return 0.0;
+            if (Double.isNaN(h[v])) h[v] = heuristic.lowerBound(v, t);
+            return h[v];
+        }
+
+        double key(int v) {
+            return g[v] + epsilon * heuristic(v);
+        }
+
+        List<Node> path() {
+            LinkedList<Node> path = new LinkedList<>();
+            for (int v = t; v >= 0; v = parent[v]) path.addFirst(graph.node(v));
+            return new ArrayList<>(path);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * Source-to-target betweenness centrality with Brandes' algorithm: for every source a
+ * Dijkstra run counts the shortest paths to each node, and a backward sweep in reverse
+ * settle order spreads the share of every shortest path to a target over the nodes and
+ * edges it uses. Used as a poaching-risk score: with perimeter nodes as sources and
+ * forest nodes as targets, a high score marks ground that many cheapest incursion
+ * routes have to cross.
+ *
+ * Sources are processed in parallel. Each worker slot of {@link ParallelWork} keeps its
+ * own scratch arrays and score accumulators, which are summed once all sources are done.
+ * A cancellation token is checked before every source, so a superseded run frees its
+ * threads quickly.
+ */
+public final class BetweennessCentrality {
+    // Relative tolerance for treating two path lengths as equally short
+    private static final double TIE_EPSILON = 1e-9;
+
+    private final double[] nodeScores;
+    private final double[] edgeScores;  // aligned with the snapshot's forward edge slots
+
+    private BetweennessCentrality(double[] nodeScores, double[] edgeScores) {
+        this.nodeScores = nodeScores;
+        this.edgeScores = edgeScores;
+    }
+
+    public static BetweennessCentrality compute(GraphSnapshot snapshot, RoutingProfile profile,
+                                                int[] sources, int[] targets) {
+        return compute(snapshot, profile, sources, targets, CancellationToken.NONE);
+    }
+
+    // Like the above; throws CancellationException once the token is cancelled
+    public static BetweennessCentrality compute(GraphSnapshot snapshot, RoutingProfile profile,
+                                                int[] sources, int[] targets, CancellationToken token) {
+        boolean[] isTarget = new boolean[snapshot.nodeCount()];
+        for (int target : targets) isTarget[target] = true;
+        double[] weights = snapshot.weights(profile);
+
+        int[] passable = IntStream.of(sources).distinct()
+            .filter(s -> profile.isPassable(snapshot.terrain(s)))
+            .toArray();
+        List<Accumulator> accumulators = ParallelWork.run(passable.length, ParallelWork.defaultWorkers(),
+            () -> new Accumulator(snapshot, weights, isTarget),
+            (accumulator, i) -> {
+                if (!token.isCancelled()) accumulator.addSource(passable[i]);
+            });
+        if (token.isCancelled()) throw new CancellationException("Betweenness cancelled");
+
+        double[] nodeScores = new double[snapshot.nodeCount()];
+        double[] edgeScores = new double[snapshot.edgeCount()];
+        for (Accumulator accumulator : accumulators) {
+            for (int v = 0; v < nodeScores.length; v++) nodeScores[v] += accumulator.nodeScores[v];
+            for (int e = 0; e < edgeScores.length; e++) edgeScores[e] += accumulator.edgeScores[e];
+        }
+        return new BetweennessCentrality(nodeScores, edgeScores);
+    }
+
+    public double nodeScore(int v) { return nodeScores[v]; }
+    public double edgeScore(int edge) { return edgeScores[edge]; }
+
+    // Node scores scaled to [0, 1] on a log scale so that moderate corridors stay visible
+    public double[] nodeHeat() { return heat(nodeScores); }
+
+    // Edge scores scaled the same way, aligned with the snapshot's forward edge slots
+    public double[] edgeHeat() { return heat(edgeScores); }
+
+    private static double[] heat(double[] scores) {
+        double max = Arrays.stream(scores).max().orElse(0.0);
+        double[] heat = new double[scores.length];
+        if (max <= 0.0) return heat;
+        double scale = Math.log1p(max);
+        for (int i = 0; i < scores.length; i++) {
+            heat[i] = Math.log1p(scores[i]) / scale;
+        }
+        return heat;
+    }
+
+    // Scratch space and partial scores of one worker slot
+    private static final class Accumulator {
+        final GraphSnapshot snapshot;
+        final double[] weights;
+        final boolean[] isTarget;
+        final double[] nodeScores;
+        final double[] edgeScores;
+
+        final double[] dist;
+        final double[] sigma;   // number of shortest paths from the source
+        final double[] delta;   // dependency of the source on each node
+        final int[] order;      // nodes in settle order
+        final IndexedMinHeap queue;
+
+        Accumulator(GraphSnapshot snapshot, double[] weights, boolean[] isTarget) {
+            int n = snapshot.nodeCount();
+            this.snapshot = snapshot;
+            this.weights = weights;
+            this.isTarget = isTarget;
+            nodeScores = new double[n];
+            edgeScores = new double[snapshot.edgeCount()];
+            dist = new double[n];
+            sigma = new double[n];
+            delta = new double[n];
+            order = new int[n];
+            queue = new IndexedMinHeap(n);
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        }
+
+        void addSource(int s) {
+            int settled = 0;
+            dist[s] = 0.0;
+            sigma[s] = 1.0;
+            queue.insertOrDecrease(s, 0.0);
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                order[settled++] = v;
+                for (int e = snapshot.edgeStart(v); e < snapshot.edgeEnd(v); e++) {
+                    if (weights[e] == Double.POSITIVE_INFINITY) continue;
+                    int w = snapshot.target(e);
+                    double d = dist[v] + weights[e];
+                    if (d < dist[w] && !sameLength(d, dist[w])) {
+                        dist[w] = d;
+                        sigma[w] = sigma[v];
+                        queue.insertOrDecrease(w, d);
+                    } else if (sameLength(d, dist[w])) {
+                        sigma[w] += sigma[v];
+                    }
+                }
+            }
+
+            // Backward sweep: every predecessor on a shortest path gets its share
+            for (int i = settled - 1; i >= 0; i--) {
+                int w = order[i];
+                double coefficient = ((isTarget[w] && w != s) ? 1.0 : 0.0) + delta[w];
+                if (coefficient > 0.0) {
+                    for (int r = snapshot.reverseStart(w); r < snapshot.reverseEnd(w); r++) {
+                        int v = snapshot.source(r);
+                        int e = snapshot.forwardEdge(r);
+                        if (dist[v] == Double.POSITIVE_INFINITY || v == w) continue;
+                        if (!sameLength(dist[v] + weights[e], dist[w])) continue;
+                        double share = sigma[v] / sigma[w] * coefficient;
+                        edgeScores[e] += share;
+                        delta[v] += share;
+                    }
+                }
+                if (w != s) nodeScores[w] += delta[w];
+            }
+
+            for (int i = 0; i < settled; i++) {
+                int v = order[i];
+                dist[v] = Double.POSITIVE_INFINITY;
+                sigma[v] = 0.0;
+                delta[v] = 0.0;
+            }
+        }
+
+        private static boolean sameLength(double a, double b) {
+            if (b == Double.POSITIVE_INFINITY) return false;
+            return Math.abs(a - b) <= TIE_EPSILON * Math.max(1.0, Math.abs(b));
+        }
+    }
+}
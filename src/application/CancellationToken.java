@@ -0,0 +1,43 @@
+package application;
+
+/**
+ * Cooperative stop signal for long-running searches. A token is cancelled explicitly,
+ * e.g. when the user starts a new query, or implicitly once its time budget runs out.
+ * Searches poll {@link #isCancelled()} every few hundred settled nodes, so a stop takes
+ * effect within microseconds rather than after the search finishes.
+ */
+public final class CancellationToken {
+    // Never cancelled and without a time limit
+    public static final CancellationToken NONE = new CancellationToken(Long.MAX_VALUE);
+
+    private final long deadline;    // System.nanoTime() value, or Long.MAX_VALUE
+    private volatile boolean cancelled;
+
+    private CancellationToken(long deadline) {
+        this.deadline = deadline;
+    }
+
+    // A token without a time limit that only stops when cancelled
+    public static CancellationToken create() {
+        return new CancellationToken(Long.MAX_VALUE);
+    }
+
+    // A token that also stops by itself after the given number of milliseconds
+    public static CancellationToken withBudget(long millis) {
+        return new CancellationToken(System.nanoTime() + millis * 1_000_000L);
+    }
+
+    public void cancel() {
+        if (this != NONE) cancelled = true;
+    }
+
+    // True once cancelled or out of time
+    public boolean isCancelled() {
+        return cancelled || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+
+    // True only if cancel() was called, as opposed to the budget running out
+    public boolean wasCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,88 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds the cheapest set of nodes where ranger checkpoints block every route from the map
+ * boundary to the core forest. Each node v is split into v_in -> v_out with the
+ * checkpoint cost of its terrain as capacity, every graph edge u -> v becomes an
+ * uncapacitated arc u_out -> v_in, a super-source feeds the boundary nodes and the core
+ * forest nodes drain into a super-sink. By max-flow/min-cut, the saturated split arcs
+ * on the source side of a minimum cut form a minimum-cost vertex cut.
+ */
+public final class CheckpointPlanner {
+    private final List<Node> checkpoints;
+    private final long totalCost;
+
+    private CheckpointPlanner(List<Node> checkpoints, long totalCost) {
+        this.checkpoints = checkpoints;
+        this.totalCost = totalCost;
+    }
+
+    // Nodes to staff, in snapshot order
+    public List<Node> getCheckpoints() { return checkpoints; }
+
+    // Sum of the checkpoint costs, equal to the maximum flow
+    public long getTotalCost() { return totalCost; }
+
+    /**
+     * Cost of guarding a node of the given terrain. Open ground is easiest to watch;
+     * forest cover needs more rangers for the same stretch.
+     */
+    public static int checkpointCost(byte terrain) {
+        switch (terrain) {
+            case GraphSnapshot.TERRAIN_FOREST: return 3;
+            case GraphSnapshot.TERRAIN_GRASS: return 2;
+            default: return 1;
+        }
+    }
+
+    /**
+     * Computes the minimum vertex cut between the boundary and core node ids. Terrain the
+     * profile cannot cross is left out of the network, since poachers cannot use it.
+     */
+    public static CheckpointPlanner plan(GraphSnapshot snapshot, RoutingProfile profile,
+                                         int[] boundary, int[] core) {
+        return plan(snapshot, profile, boundary, core, CancellationToken.NONE);
+    }
+
+    // Like the above; throws CancellationException once the token is cancelled
+    public static CheckpointPlanner plan(GraphSnapshot snapshot, RoutingProfile profile,
+                                         int[] boundary, int[] core, CancellationToken token) {
+        int n = snapshot.nodeCount();
+        int source = 2 * n;
+        int sink = 2 * n + 1;
+        MaxFlow network = new MaxFlow(2 * n + 2, n + snapshot.edgeCount() + boundary.length + core.length);
+
+        int[] splitArc = new int[n];
+        for (int v = 0; v < n; v++) {
+            splitArc[v] = profile.isPassable(snapshot.terrain(v)) ?
+                network.addArc(2 * v, 2 * v + 1, checkpointCost(snapshot.terrain(v))) : -1;
+        }
+        for (int e = 0; e < snapshot.edgeCount(); e++) {
+            int u = snapshot.tail(e);
+            int v = snapshot.target(e);
+            if (splitArc[u] < 0 || splitArc[v] < 0) continue;
+            network.addArc(2 * u + 1, 2 * v, MaxFlow.INFINITE);
+        }
+        for (int v : boundary) {
+            if (splitArc[v] >= 0) network.addArc(source, 2 * v, MaxFlow.INFINITE);
+        }
+        for (int v : core) {
+            if (splitArc[v] >= 0) network.addArc(2 * v + 1, sink, MaxFlow.INFINITE);
+        }
+
+        long flow = network.maxFlow(source, sink, token);
+        if (token.isCancelled()) throw new CancellationException("Checkpoint planning cancelled");
+        boolean[] reachable = network.sourceSide(source);
+        List<Node> checkpoints = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            if (splitArc[v] >= 0 && reachable[2 * v] && !reachable[2 * v + 1]) {
+                checkpoints.add(snapshot.node(v));
+            }
+        }
+        return new CheckpointPlanner(checkpoints, flow);
+    }
+}
@@ -0,0 +1,595 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction hierarchy for one graph snapshot and routing profile. Nodes are
+ * contracted in order of edge difference (shortcuts added minus edges removed, plus the
+ * number of already contracted neighbours), and every contraction inserts the shortcuts
+ * needed to keep distances between the remaining nodes intact. A query then only has to
+ * run two small Dijkstra searches that each climb to higher-ranked nodes.
+ *
+ * Preprocessing contracts independent sets of nodes in parallel, so it scales with the
+ * number of cores. A finished hierarchy can be written next to the map image and is
+ * reloaded only when the fingerprint of the graph and profile weights still matches.
+ * Hierarchies suit maps that are not being edited; once the graph changes,
+ * {@link #current} stops handing out the stale one.
+ */
+public final class ContractionHierarchy {
+    private static final int FILE_MAGIC = 0x43484931;  // "CHI1"
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private static final Map<RoutingProfile, ContractionHierarchy> READY = new ConcurrentHashMap<>();
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hierarchy-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long version;
+    private final long fingerprint;
+    private final int[] rank;
+
+    // Upward edges u -> upTargets[k], all to higher-ranked nodes
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddle;      // contracted node a shortcut bypasses, or -1
+
+    // Downward edges downSources[k] -> u stored at u, all from higher-ranked nodes
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final int[] downMiddle;
+
+    private ContractionHierarchy(long version, long fingerprint, int[] rank,
+                                 int[] upOffsets, int[] upTargets, double[] upWeights, int[] upMiddle,
+                                 int[] downOffsets, int[] downSources, double[] downWeights, int[] downMiddle) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddle = upMiddle;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+        this.downMiddle = downMiddle;
+    }
+
+    // Ready hierarchy for exactly this snapshot and profile, or null
+    public static ContractionHierarchy current(GraphSnapshot snapshot, RoutingProfile profile) {
+        ContractionHierarchy hierarchy = READY.get(profile);
+        return hierarchy != null && hierarchy.version == snapshot.getVersion() ? hierarchy : null;
+    }
+
+    /**
+     * Loads or builds the hierarchy in the background. If cacheFile holds a hierarchy
+     * with a matching fingerprint it is used as is; otherwise a new one is built and,
+     * when cacheFile is not null, written there for the next session.
+     */
+    public static void prepare(GraphSnapshot snapshot, RoutingProfile profile, File cacheFile) {
+        if (current(snapshot, profile) != null) return;
+        BUILDER.execute(() -> {
+            if (current(snapshot, profile) != null) return;
+            ContractionHierarchy hierarchy = null;
+            if (cacheFile != null && cacheFile.isFile()) {
+                try {
+                    hierarchy = load(cacheFile, snapshot, profile);
+                } catch (IOException e) {
+                    System.err.println("Ignoring unreadable hierarchy cache " + cacheFile + ": " + e.getMessage());
+                }
+            }
+            if (hierarchy == null) {
+                hierarchy = build(snapshot, profile);
+                if (cacheFile != null) {
+                    try {
+                        hierarchy.save(cacheFile);
+                    } catch (IOException e) {
+                        System.err.println("Could not save hierarchy to " + cacheFile + ": " + e.getMessage());
+                    }
+                }
+            }
+            READY.put(profile, hierarchy);
+        });
+    }
+
+    // Cache file for a map image and profile, e.g. "reserve.png.shortest-distance.ch"
+    public static File cacheFile(File image, RoutingProfile profile) {
+        String slug = profile.getName().toLowerCase().replaceAll("[^a-z0-9]+", "-");
+        return new File(image.getParentFile(), image.getName() + "." + slug + ".ch");
+    }
+
+    public long getVersion() { return version; }
+    public int shortcutCount() {
+        int count = 0;
+        for (int middle : upMiddle) if (middle >= 0) count++;
+        for (int middle : downMiddle) if (middle >= 0) count++;
+        return count;
+    }
+
+    // ---------------------------------------------------------------- preprocessing
+
+    // Mutable adjacency of one node while the hierarchy is being built
+    private static final class Arcs {
+        int[] node = new int[4];
+        double[] weight = new double[4];
+        int[] middle = new int[4];
+        int size;
+
+        int indexOf(int v) {
+            for (int i = 0; i < size; i++) {
+                if (node[i] == v) return i;
+            }
+            return -1;
+        }
+
+        // Adds the arc or lowers the weight of an existing one
+        void put(int v, double w, int via) {
+            int i = indexOf(v);
+            if (i >= 0) {
+                if (w < weight[i]) {
+                    weight[i] = w;
+                    middle[i] = via;
+                }
+                return;
+            }
+            if (size == node.length) {
+                node = Arrays.copyOf(node, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            node[size] = v;
+            weight[size] = w;
+            middle[size] = via;
+            size++;
+        }
+
+        void remove(int v) {
+            int i = indexOf(v);
+            if (i < 0) return;
+            size--;
+            node[i] = node[size];
+            weight[i] = weight[size];
+            middle[i] = middle[size];
+        }
+    }
+
+    /**
+     * Contracts every node of the snapshot. Each round picks the nodes whose priority is
+     * lower than that of all their remaining neighbours; such nodes share no edge, so
+     * their shortcuts can be computed in parallel. Round members are then applied in id
+     * order, and each witness search avoids the members applied before its own node, so
+     * the result is what sequential contraction in that order would produce (possibly
+     * with a few redundant shortcuts).
+     */
+    public static ContractionHierarchy build(GraphSnapshot snapshot, RoutingProfile profile) {
+        int n = snapshot.nodeCount();
+        double[] weights = snapshot.weights(profile);
+        Arcs[] out = new Arcs[n];
+        Arcs[] in = new Arcs[n];
+        for (int v = 0; v < n; v++) {
+            out[v] = new Arcs();
+            in[v] = new Arcs();
+        }
+        for (int e = 0; e < snapshot.edgeCount(); e++) {
+            int u = snapshot.tail(e);
+            int v = snapshot.target(e);
+            if (u == v || weights[e] == Double.POSITIVE_INFINITY) continue;
+            out[u].put(v, weights[e], -1);
+            in[v].put(u, weights[e], -1);
+        }
+
+        int[] rank = new int[n];
+        Arrays.fill(rank, -1);
+        int[] contractedNeighbours = new int[n];
+        int[] level = new int[n];
+        boolean[] inRound = new boolean[n];
+        double[] priority = new double[n];
+        IntStream.range(0, n).parallel().forEach(v ->
+            priority[v] = priority(v, out, in, rank, contractedNeighbours, level));
+
+        int[] remaining = IntStream.range(0, n).toArray();
+        int nextRank = 0;
+        while (remaining.length > 0) {
+            int[] round = Arrays.stream(remaining).parallel()
+                .filter(v -> isLocalMinimum(v, out, in, rank, priority))
+                .toArray();
+            for (int v : round) inRound[v] = true;
+
+            List<List<double[]>> shortcuts = Arrays.stream(round).parallel()
+                .mapToObj(v -> shortcuts(v, out, in, rank, inRound))
+                .collect(Collectors.toList());
+
+            // Apply sequentially; the endpoints of different rounds' shortcuts may overlap
+            int degreeSum = 0;
+            for (int v : round) degreeSum += in[v].size + out[v].size;
+            int[] touched = new int[degreeSum];
+            int touchedCount = 0;
+            for (int i = 0; i < round.length; i++) {
+                int v = round[i];
+                rank[v] = nextRank++;
+                for (double[] shortcut : shortcuts.get(i)) {
+                    int x = (int) shortcut[0];
+                    int y = (int) shortcut[1];
+                    out[x].put(y, shortcut[2], v);
+                    in[y].put(x, shortcut[2], v);
+                }
+                // v's own arcs are now final: they become its upward and downward edges
+                for (int k = 0; k < in[v].size; k++) {
+                    int x = in[v].node[k];
+                    out[x].remove(v);
+                    contractedNeighbours[x]++;
+                    level[x] = Math.max(level[x], level[v] + 1);
+                    touched[touchedCount++] = x;
+                }
+                for (int k = 0; k < out[v].size; k++) {
+                    int y = out[v].node[k];
+                    in[y].remove(v);
+                    contractedNeighbours[y]++;
+                    level[y] = Math.max(level[y], level[v] + 1);
+                    touched[touchedCount++] = y;
+                }
+            }
+            for (int v : round) inRound[v] = false;
+
+            int[] neighbours = Arrays.stream(touched, 0, touchedCount).filter(v -> rank[v] < 0).distinct().toArray();
+            Arrays.stream(neighbours).parallel().forEach(v ->
+                priority[v] = priority(v, out, in, rank, contractedNeighbours, level));
+            remaining = Arrays.stream(remaining).filter(v -> rank[v] < 0).toArray();
+        }
+
+        // Freeze the final arcs into CSR arrays
+        int[] upOffsets = new int[n + 1];
+        int[] downOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] = upOffsets[v] + out[v].size;
+            downOffsets[v + 1] = downOffsets[v] + in[v].size;
+        }
+        int[] upTargets = new int[upOffsets[n]];
+        double[] upWeights = new double[upOffsets[n]];
+        int[] upMiddle = new int[upOffsets[n]];
+        int[] downSources = new int[downOffsets[n]];
+        double[] downWeights = new double[downOffsets[n]];
+        int[] downMiddle = new int[downOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(out[v].node, 0, upTargets, upOffsets[v], out[v].size);
+            System.arraycopy(out[v].weight, 0, upWeights, upOffsets[v], out[v].size);
+            System.arraycopy(out[v].middle, 0, upMiddle, upOffsets[v], out[v].size);
+            System.arraycopy(in[v].node, 0, downSources, downOffsets[v], in[v].size);
+            System.arraycopy(in[v].weight, 0, downWeights, downOffsets[v], in[v].size);
+            System.arraycopy(in[v].middle, 0, downMiddle, downOffsets[v], in[v].size);
+        }
+        return new ContractionHierarchy(snapshot.getVersion(), fingerprint(snapshot, weights), rank,
+            upOffsets, upTargets, upWeights, upMiddle, downOffsets, downSources, downWeights, downMiddle);
+    }
+
+    /**
+     * Weighted edge difference plus contracted neighbours and hierarchy level; lower values
+     * are contracted first. The last two terms spread contraction evenly over the map.
+     */
+    private static double priority(int v, Arcs[] out, Arcs[] in, int[] rank,
+                                   int[] contractedNeighbours, int[] level) {
+        int added = shortcuts(v, out, in, rank, null).size();
+        return 2.0 * (added - (in[v].size + out[v].size)) + contractedNeighbours[v] + level[v];
+    }
+
+    // True if v's priority (ties broken by id) is below that of every remaining neighbour
+    private static boolean isLocalMinimum(int v, Arcs[] out, Arcs[] in, int[] rank, double[] priority) {
+        for (Arcs arcs : new Arcs[] {out[v], in[v]}) {
+            for (int k = 0; k < arcs.size; k++) {
+                int u = arcs.node[k];
+                if (rank[u] >= 0) continue;
+                if (priority[u] < priority[v] || (priority[u] == priority[v] && u < v)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shortcuts {x, y, weight} needed when v is removed: for every pair of in-neighbour x
+     * and out-neighbour y, unless a witness search from x finds a path to y that avoids v
+     * (and the rest of the current round) and is no longer than x -> v -> y.
+     */
+    private static List<double[]> shortcuts(int v, Arcs[] out, Arcs[] in, int[] rank, boolean[] inRound) {
+        List<double[]> result = new ArrayList<>();
+        Arcs incoming = in[v];
+        Arcs outgoing = out[v];
+        if (incoming.size == 0 || outgoing.size == 0) return result;
+
+        double maxOut = 0.0;
+        for (int k = 0; k < outgoing.size; k++) maxOut = Math.max(maxOut, outgoing.weight[k]);
+
+        for (int i = 0; i < incoming.size; i++) {
+            int x = incoming.node[i];
+            double toV = incoming.weight[i];
+            SearchWorkspace.Frontier witness = SearchWorkspace.forThread(rank.length).forward();
+            witnessSearch(witness, x, v, toV + maxOut, outgoing, out, rank, inRound);
+            for (int k = 0; k < outgoing.size; k++) {
+                int y = outgoing.node[k];
+                if (y == x) continue;
+                double via = toV + outgoing.weight[k];
+                if (witness.dist(y) > via) result.add(new double[] {x, y, via});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bounded Dijkstra from x over uncontracted nodes, skipping the node being contracted.
+     * It stops at the distance limit, the settle limit, or once every target is settled.
+     */
+    private static void witnessSearch(SearchWorkspace.Frontier witness, int x, int skip, double limit,
+                                      Arcs targets, Arcs[] out, int[] rank, boolean[] inRound) {
+        IndexedMinHeap queue = witness.queue();
+        witness.label(x, 0.0, -1);
+        queue.insertOrDecrease(x, 0.0);
+        int settled = 0;
+        int pending = targets.indexOf(x) >= 0 ? targets.size - 1 : targets.size;
+        while (!queue.isEmpty() && queue.peekKey() <= limit && settled++ < WITNESS_SETTLE_LIMIT) {
+            int u = queue.poll();
+            if (u != x && targets.indexOf(u) >= 0 && --pending == 0) break;
+            Arcs arcs = out[u];
+            for (int k = 0; k < arcs.size; k++) {
+                int w = arcs.node[k];
+                // Round members applied before skip are gone by the time its shortcuts are added
+                if (w == skip || rank[w] >= 0 || (inRound != null && inRound[w] && w < skip)) continue;
+                double d = witness.dist(u) + arcs.weight[k];
+                if (d < witness.dist(w)) {
+                    witness.label(w, d, u);
+                    queue.insertOrDecrease(w, d);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- queries
+
+    /**
+     * Bidirectional upward search between snapshot ids s and t. Each side stops once its
+     * queue top reaches the best meeting distance, and nodes reachable more cheaply from a
+     * higher-ranked neighbour are stalled instead of expanded. The path is unpacked
+     * into original graph nodes.
+     */
+    public PathFinder.SearchResult query(GraphSnapshot snapshot, int s, int t) {
+        SearchWorkspace workspace = SearchWorkspace.forThread(rank.length);
+        int[] settled = new int[1];
+        int meet = meet(workspace, s, t, settled);
+        SearchWorkspace.Frontier forward = workspace.forward();
+        SearchWorkspace.Frontier backward = workspace.backward();
+        if (meet < 0) return PathFinder.SearchResult.empty(settled[0]);
+
+        // Up chain s .. meet, then down chain meet .. t
+        List<Integer> chain = new ArrayList<>();
+        for (int v = meet; v >= 0; v = forward.prev(v)) chain.add(v);
+        Collections.reverse(chain);
+        for (int v = backward.prev(meet); v >= 0; v = backward.prev(v)) chain.add(v);
+
+        List<Node> path = new ArrayList<>();
+        path.add(snapshot.node(s));
+        for (int i = 0; i + 1 < chain.size(); i++) {
+            unpack(chain.get(i), chain.get(i + 1), snapshot, path);
+        }
+        return new PathFinder.SearchResult(path, forward.dist(meet) + backward.dist(meet), settled[0]);
+    }
+
+    // Shortest distance from s to t, or positive infinity; no path is materialised
+    public double distance(int s, int t) {
+        SearchWorkspace workspace = SearchWorkspace.forThread(rank.length);
+        int meet = meet(workspace, s, t, null);
+        return meet < 0 ? Double.POSITIVE_INFINITY :
+            workspace.forward().dist(meet) + workspace.backward().dist(meet);
+    }
+
+    // Runs both upward searches and returns the best meeting node, or -1
+    private int meet(SearchWorkspace workspace, int s, int t, int[] settledOut) {
+        SearchWorkspace.Frontier forward = workspace.forward();
+        SearchWorkspace.Frontier backward = workspace.backward();
+        IndexedMinHeap forwardQueue = forward.queue();
+        IndexedMinHeap backwardQueue = backward.queue();
+        forward.label(s, 0.0, -1);
+        forwardQueue.insertOrDecrease(s, 0.0);
+        backward.label(t, 0.0, -1);
+        backwardQueue.insertOrDecrease(t, 0.0);
+
+        double best = s == t ? 0.0 : Double.POSITIVE_INFINITY;
+        int meet = s == t ? s : -1;
+        int settled = 0;
+        while (true) {
+            boolean forwardActive = !forwardQueue.isEmpty() && forwardQueue.peekKey() < best;
+            boolean backwardActive = !backwardQueue.isEmpty() && backwardQueue.peekKey() < best;
+            if (!forwardActive && !backwardActive) break;
+
+            if (forwardActive && (!backwardActive || forwardQueue.peekKey() <= backwardQueue.peekKey())) {
+                int u = forwardQueue.poll();
+                forward.close(u);
+                settled++;
+                double du = forward.dist(u);
+                if (stalled(u, du, forward, downOffsets, downSources, downWeights)) continue;
+                for (int k = upOffsets[u]; k < upOffsets[u + 1]; k++) {
+                    int v = upTargets[k];
+                    double d = du + upWeights[k];
+                    if (d < forward.dist(v)) {
+                        forward.label(v, d, u);
+                        forwardQueue.insertOrDecrease(v, d);
+                        if (backward.isLabelled(v) && d + backward.dist(v) < best) {
+                            best = d + backward.dist(v);
+                            meet = v;
+                        }
+                    }
+                }
+            } else {
+                int u = backwardQueue.poll();
+                backward.close(u);
+                settled++;
+                double du = backward.dist(u);
+                if (stalled(u, du, backward, upOffsets, upTargets, upWeights)) continue;
+                for (int k = downOffsets[u]; k < downOffsets[u + 1]; k++) {
+                    int v = downSources[k];
+                    double d = du + downWeights[k];
+                    if (d < backward.dist(v)) {
+                        backward.label(v, d, u);
+                        backwardQueue.insertOrDecrease(v, d);
+                        if (forward.isLabelled(v) && d + forward.dist(v) < best) {
+                            best = d + forward.dist(v);
+                            meet = v;
+                        }
+                    }
+                }
+            }
+        }
+        if (settledOut != null) settledOut[0] = settled;
+        return meet;
+    }
+
+    // Stall-on-demand: u is not on a shortest up-path if a labelled higher neighbour reaches it cheaper
+    private static boolean stalled(int u, double du, SearchWorkspace.Frontier search,
+                                   int[] offsets, int[] neighbours, double[] arcWeights) {
+        for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+            int w = neighbours[k];
+            if (search.isLabelled(w) && search.dist(w) + arcWeights[k] < du) return true;
+        }
+        return false;
+    }
+
+    // Appends the original nodes after a on the hierarchy edge a -> b
+    private void unpack(int a, int b, GraphSnapshot snapshot, List<Node> path) {
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = a;
+        stack[top++] = b;
+        while (top > 0) {
+            int to = stack[--top];
+            int from = stack[--top];
+            int middle = middleOf(from, to);
+            if (middle < 0) {
+                path.add(snapshot.node(to));
+                continue;
+            }
+            if (top + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            // Push the second half first so from -> middle is expanded first
+            stack[top++] = middle;
+            stack[top++] = to;
+            stack[top++] = from;
+            stack[top++] = middle;
+        }
+    }
+
+    private int middleOf(int from, int to) {
+        if (rank[from] < rank[to]) {
+            for (int k = upOffsets[from]; k < upOffsets[from + 1]; k++) {
+                if (upTargets[k] == to) return upMiddle[k];
+            }
+        } else {
+            for (int k = downOffsets[to]; k < downOffsets[to + 1]; k++) {
+                if (downSources[k] == from) return downMiddle[k];
+            }
+        }
+        throw new IllegalStateException("No hierarchy edge " + from + " -> " + to);
+    }
+
+    // ---------------------------------------------------------------- persistence
+
+    // Hash of the node coordinates, edge structure and profile weights the hierarchy depends on
+    static long fingerprint(GraphSnapshot snapshot, double[] weights) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, snapshot.nodeCount());
+        hash = mix(hash, snapshot.edgeCount());
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            hash = mix(hash, Double.doubleToLongBits(snapshot.x(v)));
+            hash = mix(hash, Double.doubleToLongBits(snapshot.y(v)));
+        }
+        for (int e = 0; e < snapshot.edgeCount(); e++) {
+            hash = mix(hash, snapshot.tail(e));
+            hash = mix(hash, snapshot.target(e));
+            hash = mix(hash, Double.doubleToLongBits(weights[e]));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            data.writeInt(FILE_MAGIC);
+            data.writeLong(fingerprint);
+            data.writeInt(rank.length);
+            for (int r : rank) data.writeInt(r);
+            writeArcs(data, upOffsets, upTargets, upWeights, upMiddle);
+            writeArcs(data, downOffsets, downSources, downWeights, downMiddle);
+        }
+    }
+
+    /**
+     * Reads a hierarchy saved by {@link #save}. Returns null if the file was built for a
+     * different graph or profile.
+     */
+    public static ContractionHierarchy load(File file, GraphSnapshot snapshot, RoutingProfile profile) throws IOException {
+        long expected = fingerprint(snapshot, snapshot.weights(profile));
+        try (DataInputStream data = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (data.readInt() != FILE_MAGIC) throw new IOException("Not a hierarchy file");
+            if (data.readLong() != expected) return null;
+            int n = data.readInt();
+            if (n != snapshot.nodeCount()) return null;
+            int[] rank = new int[n];
+            for (int v = 0; v < n; v++) rank[v] = data.readInt();
+
+            int[] upOffsets = readInts(data, n + 1);
+            int upCount = upOffsets[n];
+            int[] upTargets = readInts(data, upCount);
+            double[] upWeights = readDoubles(data, upCount);
+            int[] upMiddle = readInts(data, upCount);
+            int[] downOffsets = readInts(data, n + 1);
+            int downCount = downOffsets[n];
+            int[] downSources = readInts(data, downCount);
+            double[] downWeights = readDoubles(data, downCount);
+            int[] downMiddle = readInts(data, downCount);
+            return new ContractionHierarchy(snapshot.getVersion(), expected, rank,
+                upOffsets, upTargets, upWeights, upMiddle, downOffsets, downSources, downWeights, downMiddle);
+        }
+    }
+
+    private static void writeArcs(DataOutputStream data, int[] offsets, int[] nodes,
+                                  double[] arcWeights, int[] middle) throws IOException {
+        for (int offset : offsets) data.writeInt(offset);
+        for (int node : nodes) data.writeInt(node);
+        for (double weight : arcWeights) data.writeDouble(weight);
+        for (int via : middle) data.writeInt(via);
+    }
+
+    private static int[] readInts(DataInputStream data, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) values[i] = data.readInt();
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream data, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) values[i] = data.readDouble();
+        return values;
+    }
+}
@@ -8,86 +8,49 @@ public class CriticalCorridorAnalyzer {
     private static final Color CORRIDOR_COLOR = Color.DARKGREEN;
     private static final Color WATER_HIGHLIGHT_COLOR = Color.DARKBLUE;
 
-    public void analyzeCriticalCorridors(Graph graph, GraphView graphView, MapViewer mapViewer) {
-        List<Node> forestNodes = new ArrayList<>();
+    // Corridor band: nodes on routes at most this fraction costlier than the best one
+    private static final double CORRIDOR_BAND = 0.05;
+
+    // Joins the forest patches by least-cost corridors; works on the snapshot only, so it
+    // can run off the FX thread
+    public LeastCostCorridors findCorridors(GraphSnapshot snapshot, CancellationToken token) {
+        // Group the forest nodes into connected patches and join neighbouring patches
+        ForestPatches patches = ForestPatches.find(snapshot);
+        return LeastCostCorridors.compute(snapshot, patches, RoutingProfile.WILDLIFE_CORRIDOR,
+            CORRIDOR_BAND, token);
+    }
+
+    // Draws the spanning corridors, their bands and the water near their ends; FX thread only
+    public void highlightCorridors(LeastCostCorridors corridors, Graph graph, GraphView graphView, MapViewer mapViewer) {
         List<Edge> mstEdges = new ArrayList<>();
+        Set<Node> corridorBand = new HashSet<>();
         Set<Node> criticalWaterNodes = new HashSet<>();
 
-        // Collect all forest nodes
-        for (Node node : graph.getNodes()) {
-            if (node instanceof ImageNode && ((ImageNode) node).getType().equals("forest")) {
-                forestNodes.add(node);
-            }
-        }
-
-        if (forestNodes.isEmpty()) {
+        if (corridors.getPatches().patchCount() == 0) {
             graphView.clearHighlights();
             mapViewer.clearHighlights();
             return;
         }
 
-        // Build MST for forests
-        mstEdges = buildMST(forestNodes);
+        // The cheapest corridors that keep the patches connected take the place of MST edges
+        for (LeastCostCorridors.Corridor corridor : corridors.getSpanningCorridors()) {
+            mstEdges.addAll(corridor.getEdges());
+            corridorBand.addAll(corridor.getBand());
+        }
 
-        // Find water nodes near MST edges
-        for (Edge edge : mstEdges) {
-            findNearbyWater(edge.getFrom(), graph.getNodes(), criticalWaterNodes);
-            findNearbyWater(edge.getTo(), graph.getNodes(), criticalWaterNodes);
+        // Find water nodes near the corridor ends, where animals leave and enter cover
+        for (LeastCostCorridors.Corridor corridor : corridors.getSpanningCorridors()) {
+            List<Node> path = corridor.getPath();
+            for (Node end : Arrays.asList(path.get(0), path.get(path.size() - 1))) {
+                criticalWaterNodes.addAll(graph.nodesWithin(end.getX(), end.getY(),
+                    CRITICAL_RADIUS, GraphSnapshot.TERRAIN_WATER));
+            }
         }
 
         // Highlight results
         graphView.highlightMST(mstEdges, criticalWaterNodes);
         mapViewer.highlightMST(mstEdges, criticalWaterNodes);
-    }
-
-    private List<Edge> buildMST(List<Node> forestNodes) {
-        List<Edge> mstEdges = new ArrayList<>();
-        Set<Node> visited = new HashSet<>();
-        // Remove manual weight comparison since Edge calculates it automatically
-        PriorityQueue<Edge> pq = new PriorityQueue<>(Comparator.comparingDouble(Edge::getWeight));
-
-        Node start = forestNodes.get(0);
-        visited.add(start);
-
-        for (Node node : forestNodes) {
-            if (!node.equals(start)) {
-                // Use 2-argument constructor only
-                pq.add(new Edge(start, node));
-            }
-        }
-
-        while (!pq.isEmpty() && visited.size() < forestNodes.size()) {
-            Edge edge = pq.poll();
-            Node toNode = edge.getTo();
-
-            if (!visited.contains(toNode)) {
-                mstEdges.add(edge);
-                visited.add(toNode);
-
-                for (Node node : forestNodes) {
-                    if (!visited.contains(node)) {
-                        // Use 2-argument constructor
-                        pq.add(new Edge(toNode, node));
-                    }
-                }
-            }
-        }
-        return mstEdges;
-    }
-
-    private void findNearbyWater(Node node, List<Node> allNodes, Set<Node> criticalWater) {
-        for (Node waterNode : allNodes) {
-            if (waterNode instanceof ImageNode && 
-                ((ImageNode) waterNode).getType().equals("water") &&
-                distanceBetween(node, waterNode) <= CRITICAL_RADIUS) {
-                criticalWater.add(waterNode);
-            }
-        }
-    }
-
-    private double distanceBetween(Node a, Node b) {
-        double dx = a.getX() - b.getX();
-        double dy = a.getY() - b.getY();
-        return Math.sqrt(dx*dx + dy*dy);
+        graphView.highlightCorridorBand(corridorBand);
+        mapViewer.highlightCorridorBand(corridorBand);
     }
 }
@@ -0,0 +1,419 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Circuit-theory connectivity in the style of Circuitscape. The graph becomes a resistor
+ * network: every connection between two nodes is a resistor whose resistance is the
+ * step cost from {@link LeastCostCorridors#stepCosts}, so water under
+ * {@link RoutingProfile#WILDLIFE_CORRIDOR} does not conduct at all. For each pair of
+ * focal forest patches, one patch is held at 1 V and the other grounded. Each patch is
+ * short-circuited, as Circuitscape does with focal regions. The node voltages come from
+ * the reduced graph Laplacian, solved with Jacobi-preconditioned conjugate gradients.
+ * The resulting currents are scaled to one amp per pair and summed. Unlike a single
+ * least-cost corridor, the current spreads over all routes in proportion to how easy
+ * they are, so pinch points through which much of it must pass stand out.
+ *
+ * The Laplacian is stored once in CSR form. Pairs are independent and solved
+ * concurrently; when there are fewer pairs than cores, the matrix-vector products and
+ * dot products inside each solve run in parallel instead.
+ *
+ * A solve that has not converged after the iteration limit keeps its last estimate
+ * and is counted in {@link Result#getUnconvergedPairs()}, so callers can tell the
+ * currents are approximate.
+ */
+public final class CurrentFlow {
+    // Relative residual at which a solve counts as converged
+    private static final double TOLERANCE = 1e-6;
+
+    // Rows per unit of parallel work in the solver
+    private static final int BLOCK_ROWS = 4096;
+
+    private final GraphSnapshot snapshot;
+    private final RoutingProfile profile;
+
+    private int maxFocalPatches = 8;
+    private int maxIterations = 5000;
+
+    public CurrentFlow(GraphSnapshot snapshot, RoutingProfile profile) {
+        this.snapshot = snapshot;
+        this.profile = profile;
+    }
+
+    // The largest patches, up to this many, are the focal patches; every pair is solved
+    public CurrentFlow setMaxFocalPatches(int count) { this.maxFocalPatches = count; return this; }
+    public CurrentFlow setMaxIterations(int iterations) { this.maxIterations = iterations; return this; }
+
+    // Currents summed over all focal pairs
+    public static final class Result {
+        private final GraphSnapshot snapshot;
+        private final int[] connectionOfEdge;   // connection behind each forward edge slot, or -1
+        private final double[] connectionCurrent;
+        private final int[] focalPatches;
+        private final double[][] resistance;    // effective resistance between focal patches
+        private final int iterations;
+        private final int unconvergedPairs;
+
+        Result(GraphSnapshot snapshot, int[] connectionOfEdge, double[] connectionCurrent,
+               int[] focalPatches, double[][] resistance, int iterations, int unconvergedPairs) {
+            this.snapshot = snapshot;
+            this.connectionOfEdge = connectionOfEdge;
+            this.connectionCurrent = connectionCurrent;
+            this.focalPatches = focalPatches;
+            this.resistance = resistance;
+            this.iterations = iterations;
+            this.unconvergedPairs = unconvergedPairs;
+        }
+
+        // Indices of the focal patches, largest first
+        public int[] getFocalPatches() { return focalPatches.clone(); }
+
+        // Effective resistance between focal patches i and j; infinite if no current flows
+        public double getResistance(int i, int j) { return resistance[i][j]; }
+
+        // Conjugate-gradient iterations over all pairs
+        public int getIterations() { return iterations; }
+
+        // Pairs whose solve hit the iteration limit before reaching the tolerance
+        public int getUnconvergedPairs() { return unconvergedPairs; }
+
+        // Current through the connection of a forward edge slot, summed over all pairs
+        public double edgeCurrent(int edge) {
+            int c = connectionOfEdge[edge];
+            return c < 0 ? 0.0 : connectionCurrent[c];
+        }
+
+        /**
+         * Edge currents scaled to [0, 1] for {@link GraphView#showHeatmap}. The scale is
+         * logarithmic over three decades below the strongest current, so diffuse flow
+         * stays visible next to the pinch points.
+         */
+        public double[] edgeHeat() {
+            double[] heat = new double[snapshot.edgeCount()];
+            double max = Arrays.stream(connectionCurrent).max().orElse(0.0);
+            if (max <= 0.0) return heat;
+            double scale = Math.log1p(1000.0);
+            for (int e = 0; e < heat.length; e++) {
+                heat[e] = Math.log1p(1000.0 * edgeCurrent(e) / max) / scale;
+            }
+            return heat;
+        }
+    }
+
+    public Result run(ForestPatches patches) {
+        return run(patches, CancellationToken.NONE);
+    }
+
+    /**
+     * Solves every focal pair and sums the currents. The token is polled between pairs
+     * and between solver iterations; once it is cancelled the run stops and throws
+     * {@link CancellationException}, since the currents of a partial run are misleading.
+     */
+    public Result run(ForestPatches patches, CancellationToken token) {
+        Laplacian laplacian = new Laplacian(snapshot, LeastCostCorridors.stepCosts(snapshot, profile));
+        int[] focal = largestPatches(patches, maxFocalPatches);
+        int pairCount = focal.length * (focal.length - 1) / 2;
+        boolean parallelPairs = pairCount >= ForkJoinPool.getCommonPoolParallelism();
+
+        double[][] resistance = new double[focal.length][focal.length];
+        List<Accumulator> accumulators = ParallelWork.run(pairCount, parallelPairs ? ParallelWork.defaultWorkers() : 1,
+            () -> new Accumulator(laplacian, token),
+            (accumulator, k) -> {
+                if (token.isCancelled()) return;
+                int i = pairRow(k, focal.length);
+                int j = k - pairOffset(i, focal.length) + i + 1;
+                double r = accumulator.solve(patches.patch(focal[i]), patches.patch(focal[j]),
+                    !parallelPairs, maxIterations);
+                resistance[i][j] = r;
+                resistance[j][i] = r;
+            });
+        if (token.isCancelled()) throw new CancellationException("Current flow cancelled");
+
+        double[] connectionCurrent = new double[laplacian.connectionCount()];
+        int iterations = 0;
+        int unconverged = 0;
+        for (Accumulator accumulator : accumulators) {
+            for (int c = 0; c < connectionCurrent.length; c++) connectionCurrent[c] += accumulator.current[c];
+            iterations += accumulator.iterations;
+            unconverged += accumulator.unconverged;
+        }
+        return new Result(snapshot, laplacian.connectionOfEdge, connectionCurrent, focal,
+            resistance, iterations, unconverged);
+    }
+
+    // Focal patches: the largest ones, ties broken by index
+    private static int[] largestPatches(ForestPatches patches, int count) {
+        return IntStream.range(0, patches.patchCount()).boxed()
+            .sorted((a, b) -> patches.patch(a).getArea() != patches.patch(b).getArea()
+                ? Integer.compare(patches.patch(b).getArea(), patches.patch(a).getArea())
+                : Integer.compare(a, b))
+            .limit(Math.max(count, 0))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    // Pairs (i, j), i < j, are numbered row by row; row i starts at pairOffset(i)
+    private static int pairOffset(int i, int n) {
+        return i * (2 * n - i - 1) / 2;
+    }
+
+    private static int pairRow(int k, int n) {
+        int i = 0;
+        while (pairOffset(i + 1, n) <= k) i++;
+        return i;
+    }
+
+    /**
+     * Weighted graph Laplacian in CSR form. Each node pair joined by an edge in either
+     * direction is one connection, with the conductance of its cheapest edge; edges
+     * that do not conduct are left out.
+     */
+    private static final class Laplacian {
+        final int n;
+        final int[] from;              // endpoints and conductance of every connection
+        final int[] to;
+        final double[] conductance;
+        final int[] connectionOfEdge;
+
+        final int[] rowStart;          // off-diagonal entries of row u: rowStart[u] .. rowStart[u + 1]
+        final int[] column;
+        final double[] value;          // conductance; the matrix entry is its negative
+        final double[] diagonal;
+        final double[] inverseDiagonal;  // Jacobi preconditioner, zero for isolated nodes
+
+        Laplacian(GraphSnapshot snapshot, double[] resistances) {
+            n = snapshot.nodeCount();
+            int m = snapshot.edgeCount();
+
+            // One connection per unordered node pair, via a sort on the packed pair
+            long[] keys = new long[m];
+            int count = 0;
+            for (int e = 0; e < m; e++) {
+                int u = snapshot.tail(e);
+                int v = snapshot.target(e);
+                if (u == v || resistances[e] == Double.POSITIVE_INFINITY || resistances[e] <= 0.0) continue;
+                keys[count++] = pack(Math.min(u, v), Math.max(u, v));
+            }
+            long[] pairs = Arrays.stream(keys, 0, count).sorted().distinct().toArray();
+            from = new int[pairs.length];
+            to = new int[pairs.length];
+            conductance = new double[pairs.length];
+            for (int c = 0; c < pairs.length; c++) {
+                from[c] = (int) (pairs[c] >>> 32);
+                to[c] = (int) pairs[c];
+            }
+            connectionOfEdge = new int[m];
+            Arrays.fill(connectionOfEdge, -1);
+            for (int e = 0; e < m; e++) {
+                int u = snapshot.tail(e);
+                int v = snapshot.target(e);
+                if (u == v || resistances[e] == Double.POSITIVE_INFINITY || resistances[e] <= 0.0) continue;
+                int c = Arrays.binarySearch(pairs, pack(Math.min(u, v), Math.max(u, v)));
+                connectionOfEdge[e] = c;
+                conductance[c] = Math.max(conductance[c], 1.0 / resistances[e]);
+            }
+
+            // Symmetric CSR of the off-diagonal entries, plus the diagonal
+            rowStart = new int[n + 1];
+            for (int c = 0; c < pairs.length; c++) {
+                rowStart[from[c] + 1]++;
+                rowStart[to[c] + 1]++;
+            }
+            for (int u = 0; u < n; u++) rowStart[u + 1] += rowStart[u];
+            column = new int[2 * pairs.length];
+            value = new double[2 * pairs.length];
+            diagonal = new double[n];
+            int[] fill = Arrays.copyOf(rowStart, n);
+            for (int c = 0; c < pairs.length; c++) {
+                int a = fill[from[c]]++;
+                column[a] = to[c];
+                value[a] = conductance[c];
+                int b = fill[to[c]]++;
+                column[b] = from[c];
+                value[b] = conductance[c];
+                diagonal[from[c]] += conductance[c];
+                diagonal[to[c]] += conductance[c];
+            }
+            inverseDiagonal = new double[n];
+            for (int u = 0; u < n; u++) {
+                if (diagonal[u] > 0.0) inverseDiagonal[u] = 1.0 / diagonal[u];
+            }
+        }
+
+        int connectionCount() { return from.length; }
+
+        private static long pack(int a, int b) {
+            return ((long) a << 32) | (b & 0xffffffffL);
+        }
+    }
+
+    // Solver scratch space and summed connection currents of one worker slot
+    private static final class Accumulator {
+        final Laplacian lap;
+        final CancellationToken token;
+        final double[] current;
+        final double[] voltage;
+        final boolean[] fixed;
+        final double[] residual;
+        final double[] preconditioned;
+        final double[] direction;
+        final double[] product;
+        final double[] partialA;     // per-block sums of the dot products
+        final double[] partialB;
+        int iterations;
+        int unconverged;             // solves that hit the iteration limit
+
+        Accumulator(Laplacian lap, CancellationToken token) {
+            this.lap = lap;
+            this.token = token;
+            current = new double[lap.connectionCount()];
+            voltage = new double[lap.n];
+            fixed = new boolean[lap.n];
+            residual = new double[lap.n];
+            preconditioned = new double[lap.n];
+            direction = new double[lap.n];
+            product = new double[lap.n];
+            partialA = new double[(lap.n + BLOCK_ROWS - 1) / BLOCK_ROWS];
+            partialB = new double[partialA.length];
+        }
+
+        /**
+         * Holds the source patch at 1 V and the sink at 0 V, solves for the other
+         * voltages and adds the resulting currents, scaled to one amp, to the totals.
+         * Returns the effective resistance, or infinity if the patches are not connected.
+         */
+        double solve(ForestPatches.Patch source, ForestPatches.Patch sink, boolean parallel, int maxIterations) {
+            Arrays.fill(voltage, 0.0);
+            Arrays.fill(fixed, false);
+            for (int v : source.getNodes()) {
+                voltage[v] = 1.0;
+                fixed[v] = true;
+            }
+            for (int v : sink.getNodes()) fixed[v] = true;
+            for (int v = 0; v < lap.n; v++) {
+                if (lap.diagonal[v] == 0.0) fixed[v] = true;  // isolated, e.g. water
+            }
+
+            // Right-hand side: current pushed into free nodes by their fixed neighbours
+            for (int u = 0; u < lap.n; u++) {
+                double b = 0.0;
+                if (!fixed[u]) {
+                    for (int k = lap.rowStart[u]; k < lap.rowStart[u + 1]; k++) {
+                        if (fixed[lap.column[k]]) b += lap.value[k] * voltage[lap.column[k]];
+                    }
+                }
+                residual[u] = b;
+            }
+            iterations += conjugateGradient(parallel, maxIterations);
+
+            // Total current leaving the source, then per-connection currents at one amp
+            double total = 0.0;
+            for (int v : source.getNodes()) {
+                for (int k = lap.rowStart[v]; k < lap.rowStart[v + 1]; k++) {
+                    total += lap.value[k] * (voltage[v] - voltage[lap.column[k]]);
+                }
+            }
+            if (total <= 0.0) return Double.POSITIVE_INFINITY;
+            for (int c = 0; c < current.length; c++) {
+                current[c] += lap.conductance[c] * Math.abs(voltage[lap.from[c]] - voltage[lap.to[c]]) / total;
+            }
+            return 1.0 / total;
+        }
+
+        /**
+         * Preconditioned conjugate gradients on the free nodes, with the Jacobi (diagonal)
+         * preconditioner. Starts from zero free voltages with the right-hand side in
+         * residual; returns the number of iterations. A solve that reaches maxIterations
+         * without converging is counted in unconverged; one stopped by the token is not.
+         *
+         * Each iteration makes three passes over blocks of rows: the matrix-vector
+         * product, the fused voltage, residual and preconditioner update, and the new
+         * search direction. Dot products are summed per block in the same passes and
+         * the block sums added in order, so the result does not depend on threading.
+         */
+        private int conjugateGradient(boolean parallel, int maxIterations) {
+            blocks(parallel).forEach(block -> {
+                double rr = 0.0, rz = 0.0;
+                for (int u = block * BLOCK_ROWS, end = Math.min(lap.n, u + BLOCK_ROWS); u < end; u++) {
+                    preconditioned[u] = fixed[u] ? 0.0 : residual[u] * lap.inverseDiagonal[u];
+                    direction[u] = preconditioned[u];
+                    rr += residual[u] * residual[u];
+                    rz += residual[u] * preconditioned[u];
+                }
+                partialA[block] = rr;
+                partialB[block] = rz;
+            });
+            double norm = Math.sqrt(sum(partialA));
+            if (norm == 0.0) return 0;
+            double rz = sum(partialB);
+
+            int iteration = 0;
+            while (true) {
+                if (token.isCancelled()) return iteration;
+                if (iteration == maxIterations) {
+                    unconverged++;
+                    return iteration;
+                }
+                iteration++;
+                // product = L direction, restricted to the free nodes
+                blocks(parallel).forEach(block -> {
+                    double pq = 0.0;
+                    for (int u = block * BLOCK_ROWS, end = Math.min(lap.n, u + BLOCK_ROWS); u < end; u++) {
+                        if (fixed[u]) {
+                            product[u] = 0.0;
+                            continue;
+                        }
+                        double sum = lap.diagonal[u] * direction[u];
+                        for (int k = lap.rowStart[u]; k < lap.rowStart[u + 1]; k++) {
+                            sum -= lap.value[k] * direction[lap.column[k]];
+                        }
+                        product[u] = sum;
+                        pq += direction[u] * sum;
+                    }
+                    partialA[block] = pq;
+                });
+                double alpha = rz / sum(partialA);
+
+                blocks(parallel).forEach(block -> {
+                    double rr = 0.0, next = 0.0;
+                    for (int u = block * BLOCK_ROWS, end = Math.min(lap.n, u + BLOCK_ROWS); u < end; u++) {
+                        if (fixed[u]) continue;
+                        voltage[u] += alpha * direction[u];
+                        residual[u] -= alpha * product[u];
+                        preconditioned[u] = residual[u] * lap.inverseDiagonal[u];
+                        rr += residual[u] * residual[u];
+                        next += residual[u] * preconditioned[u];
+                    }
+                    partialA[block] = rr;
+                    partialB[block] = next;
+                });
+                if (Math.sqrt(sum(partialA)) <= TOLERANCE * norm) break;
+                double next = sum(partialB);
+                double beta = next / rz;
+                rz = next;
+
+                blocks(parallel).forEach(block -> {
+                    for (int u = block * BLOCK_ROWS, end = Math.min(lap.n, u + BLOCK_ROWS); u < end; u++) {
+                        direction[u] = fixed[u] ? 0.0 : preconditioned[u] + beta * direction[u];
+                    }
+                });
+            }
+            return iteration;
+        }
+
+        private IntStream blocks(boolean parallel) {
+            IntStream blocks = IntStream.range(0, partialA.length);
+            return parallel ? blocks.parallel() : blocks;
+        }
+
+        private static double sum(double[] partial) {
+            double total = 0.0;
+            for (double value : partial) total += value;
+            return total;
+        }
+    }
+}
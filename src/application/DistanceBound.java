@@ -0,0 +1,11 @@
+package application;
+
+/**
+ * Lower bound on the shortest-path distance between two snapshot node ids, used as
+ * the heuristic of goal-directed searches. Implementations must never overestimate
+ * and must satisfy the triangle inequality so the derived potentials stay consistent.
+ * Positive infinity means the target is provably unreachable from the source.
+ */
+public interface DistanceBound {
+    double lowerBound(int from, int to);
+}
@@ -0,0 +1,191 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cost from every node to its nearest forest node, with the next hop on that path. One
+ * multi-source Dijkstra over the reverse graph, seeded with every forest node at
+ * distance zero, fills the whole field; afterwards the cheapest route from any node to
+ * the forest is a walk along the successor pointers.
+ *
+ * Fields are immutable. When terrain edits add or remove forest, {@link #forGraph}
+ * derives a new field from the previous one: only nodes whose route ran through an
+ * edited node are recomputed, and new forest spreads outward only as far as it makes
+ * routes shorter. Edits that add or remove nodes renumber the snapshot and force a full
+ * rebuild.
+ */
+public final class ForestDistanceField {
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    // Latest field of the live graph per profile
+    private static final Map<RoutingProfile, ForestDistanceField> LATEST = new ConcurrentHashMap<>();
+
+    private final GraphSnapshot snapshot;
+    private final RoutingProfile profile;
+    private final double[] dist;   // cost to the nearest forest node, or positive infinity
+    private final int[] next;      // next node toward that forest node, or -1
+    private final int settledNodes;
+
+    private ForestDistanceField(GraphSnapshot snapshot, RoutingProfile profile,
+                                double[] dist, int[] next, int settledNodes) {
+        this.snapshot = snapshot;
+        this.profile = profile;
+        this.dist = dist;
+        this.next = next;
+        this.settledNodes = settledNodes;
+    }
+
+    // Field for the snapshot, computed from scratch
+    public static ForestDistanceField build(GraphSnapshot snapshot, RoutingProfile profile) {
+        int n = snapshot.nodeCount();
+        double[] dist = new double[n];
+        int[] next = new int[n];
+        Arrays.fill(dist, INF);
+        Arrays.fill(next, -1);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        for (int v = 0; v < n; v++) {
+            if (snapshot.terrain(v) == GraphSnapshot.TERRAIN_FOREST) {
+                dist[v] = 0.0;
+                queue.insertOrDecrease(v, 0.0);
+            }
+        }
+        int settled = propagate(snapshot, snapshot.weights(profile), dist, next, queue);
+        return new ForestDistanceField(snapshot, profile, dist, next, settled);
+    }
+
+    /**
+     * Field for the current state of the live graph. Reuses the previous field of the
+     * profile when the graph has not changed, and updates it incrementally when only
+     * terrain has changed since.
+     */
+    public static ForestDistanceField forGraph(Graph graph, RoutingProfile profile) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        ForestDistanceField field = LATEST.get(profile);
+        if (field != null && field.snapshot == snapshot) return field;
+
+        List<GraphChange> changes = field == null ? null : graph.changesSince(field.snapshot.getVersion());
+        ForestDistanceField updated = null;
+        if (changes != null && field.snapshot.getVersion() < snapshot.getVersion()
+                && field.snapshot.nodeCount() == snapshot.nodeCount() && onlyTerrain(changes)) {
+            updated = field.withTerrainChanges(snapshot, changes);
+        }
+        if (updated == null) updated = build(snapshot, profile);
+        LATEST.put(profile, updated);
+        return updated;
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+
+    // Nodes settled to compute this field; small for an incremental update
+    public int getSettledNodes() { return settledNodes; }
+
+    public boolean reachesForest(int v) { return dist[v] != INF; }
+    public double distance(int v) { return dist[v]; }
+    public int successor(int v) { return next[v]; }
+
+    // Cheapest path from v to the nearest forest node, or an empty list if there is none
+    public List<Node> pathFrom(int v) {
+        List<Node> path = new ArrayList<>();
+        if (dist[v] == INF) return path;
+        for (int at = v; at >= 0; at = next[at]) path.add(snapshot.node(at));
+        return path;
+    }
+
+    private static boolean onlyTerrain(List<GraphChange> changes) {
+        for (GraphChange change : changes) {
+            if (change.getKind() != GraphChange.Kind.TERRAIN_CHANGED) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies terrain edits to a copy of this field. A changed node alters the weights
+     * of its incoming edges and may gain or lose forest status, so every node whose
+     * route passes through it is reset and re-seeded from its unaffected neighbours. A
+     * single Dijkstra from the reset nodes then settles exactly the part of the field
+     * that can change, including nodes that now reach new forest more cheaply. Returns
+     * null if the snapshots disagree on node ids.
+     */
+    private ForestDistanceField withTerrainChanges(GraphSnapshot updated, List<GraphChange> changes) {
+        int n = updated.nodeCount();
+        double[] newDist = dist.clone();
+        int[] newNext = next.clone();
+        double[] weights = updated.weights(profile);
+
+        // Reset the edited nodes and everything routed through them
+        boolean[] reset = new boolean[n];
+        int[] stack = new int[n];
+        int[] resetNodes = new int[n];
+        int resetCount = 0;
+        for (GraphChange change : changes) {
+            int x = updated.idOf(change.getNode());
+            if (x < 0 || updated.node(x) != snapshot.node(x)) return null;
+            if (reset[x]) continue;
+            reset[x] = true;
+            int top = 0;
+            stack[top++] = x;
+            while (top > 0) {
+                int v = stack[--top];
+                resetNodes[resetCount++] = v;
+                newDist[v] = INF;
+                newNext[v] = -1;
+                for (int r = updated.reverseStart(v); r < updated.reverseEnd(v); r++) {
+                    int u = updated.source(r);
+                    if (!reset[u] && next[u] == v) {
+                        reset[u] = true;
+                        stack[top++] = u;
+                    }
+                }
+            }
+        }
+
+        // Seed reset nodes from their unaffected successors, and forest nodes at zero
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        for (int i = 0; i < resetCount; i++) {
+            int v = resetNodes[i];
+            if (updated.terrain(v) == GraphSnapshot.TERRAIN_FOREST) {
+                newDist[v] = 0.0;
+                queue.insertOrDecrease(v, 0.0);
+                continue;
+            }
+            for (int e = updated.edgeStart(v); e < updated.edgeEnd(v); e++) {
+                int w = updated.target(e);
+                if (reset[w] || weights[e] == INF) continue;
+                double d = weights[e] + newDist[w];
+                if (d < newDist[v]) {
+                    newDist[v] = d;
+                    newNext[v] = w;
+                }
+            }
+            if (newDist[v] != INF) queue.insertOrDecrease(v, newDist[v]);
+        }
+        int settled = propagate(updated, weights, newDist, newNext, queue);
+        return new ForestDistanceField(updated, profile, newDist, newNext, settled);
+    }
+
+    // Reverse Dijkstra from the queued nodes, only ever lowering distances
+    private static int propagate(GraphSnapshot snapshot, double[] weights, double[] dist, int[] next,
+                                 IndexedMinHeap queue) {
+        int settled = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            settled++;
+            for (int r = snapshot.reverseStart(v); r < snapshot.reverseEnd(v); r++) {
+                double w = weights[snapshot.forwardEdge(r)];
+                if (w == INF) continue;  // v cannot be entered under this profile
+                int u = snapshot.source(r);
+                double d = dist[v] + w;
+                if (d < dist[u]) {
+                    dist[u] = d;
+                    next[u] = v;
+                    queue.insertOrDecrease(u, d);
+                }
+            }
+        }
+        return settled;
+    }
+}
@@ -0,0 +1,162 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Forest patches of a {@link GraphSnapshot}: the connected components of forest nodes,
+ * where two forest nodes belong together if an edge joins them in either direction.
+ *
+ * Labelling runs in parallel over the nodes with a lock-free union-find. Every root
+ * pointer is an entry of an {@link AtomicIntegerArray}, and a union links the larger
+ * root below the smaller one with a compare-and-set, retrying if another thread got
+ * there first. The resulting components do not depend on thread timing, and patches
+ * are numbered in order of their first node, so the numbering is stable too.
+ */
+public final class ForestPatches {
+    private final GraphSnapshot snapshot;
+    private final int[] patchOf;         // patch of every node, or -1 for non-forest nodes
+    private final List<Patch> patches;
+
+    // One connected forest area
+    public static final class Patch {
+        private final int index;
+        private final int[] nodes;
+        private final int[] boundary;
+        private final double centroidX;
+        private final double centroidY;
+
+        private Patch(int index, int[] nodes, int[] boundary, double centroidX, double centroidY) {
+            this.index = index;
+            this.nodes = nodes;
+            this.boundary = boundary;
+            this.centroidX = centroidX;
+            this.centroidY = centroidY;
+        }
+
+        public int getIndex() { return index; }
+
+        // Area in sampled grid cells, i.e. the number of forest nodes in the patch
+        public int getArea() { return nodes.length; }
+
+        public double getCentroidX() { return centroidX; }
+        public double getCentroidY() { return centroidY; }
+
+        // Snapshot ids of the patch's nodes, ascending
+        public int[] getNodes() { return nodes.clone(); }
+
+        // Snapshot ids of the patch's nodes that border a non-forest node, ascending
+        public int[] getBoundary() { return boundary.clone(); }
+    }
+
+    private ForestPatches(GraphSnapshot snapshot, int[] patchOf, List<Patch> patches) {
+        this.snapshot = snapshot;
+        this.patchOf = patchOf;
+        this.patches = patches;
+    }
+
+    public static ForestPatches find(GraphSnapshot snapshot) {
+        int n = snapshot.nodeCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) parent.set(v, v);
+
+        IntStream.range(0, n).parallel()
+            .filter(u -> snapshot.terrain(u) == GraphSnapshot.TERRAIN_FOREST)
+            .forEach(u -> {
+                for (int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++) {
+                    int v = snapshot.target(e);
+                    if (snapshot.terrain(v) == GraphSnapshot.TERRAIN_FOREST) union(parent, u, v);
+                }
+            });
+
+        // Number patches by first node and gather their members in node order
+        int[] patchOf = new int[n];
+        Arrays.fill(patchOf, -1);
+        int[] patchOfRoot = new int[n];
+        Arrays.fill(patchOfRoot, -1);
+        int patchCount = 0;
+        for (int v = 0; v < n; v++) {
+            if (snapshot.terrain(v) != GraphSnapshot.TERRAIN_FOREST) continue;
+            int root = find(parent, v);
+            if (patchOfRoot[root] < 0) patchOfRoot[root] = patchCount++;
+            patchOf[v] = patchOfRoot[root];
+        }
+
+        int[] sizes = new int[patchCount];
+        for (int v = 0; v < n; v++) {
+            if (patchOf[v] >= 0) sizes[patchOf[v]]++;
+        }
+        int[][] members = new int[patchCount][];
+        for (int p = 0; p < patchCount; p++) members[p] = new int[sizes[p]];
+        Arrays.fill(sizes, 0);
+        for (int v = 0; v < n; v++) {
+            if (patchOf[v] >= 0) members[patchOf[v]][sizes[patchOf[v]]++] = v;
+        }
+
+        Patch[] patches = new Patch[patchCount];
+        IntStream.range(0, patchCount).parallel()
+            .forEach(p -> patches[p] = describe(snapshot, patchOf, p, members[p]));
+        return new ForestPatches(snapshot, patchOf, Collections.unmodifiableList(Arrays.asList(patches)));
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+    public int patchCount() { return patches.size(); }
+    public Patch patch(int index) { return patches.get(index); }
+    public List<Patch> getPatches() { return patches; }
+
+    // Patch of the node, or -1 if it is not forest
+    public int patchOf(int v) { return patchOf[v]; }
+
+    private static Patch describe(GraphSnapshot snapshot, int[] patchOf, int index, int[] nodes) {
+        double sumX = 0.0, sumY = 0.0;
+        int[] boundary = new int[nodes.length];
+        int boundaryCount = 0;
+        for (int v : nodes) {
+            sumX += snapshot.x(v);
+            sumY += snapshot.y(v);
+            if (bordersOtherTerrain(snapshot, patchOf, v)) boundary[boundaryCount++] = v;
+        }
+        return new Patch(index, nodes, Arrays.copyOf(boundary, boundaryCount),
+            sumX / nodes.length, sumY / nodes.length);
+    }
+
+    // True if an edge in either direction joins v to a non-forest node
+    private static boolean bordersOtherTerrain(GraphSnapshot snapshot, int[] patchOf, int v) {
+        for (int e = snapshot.edgeStart(v); e < snapshot.edgeEnd(v); e++) {
+            if (patchOf[snapshot.target(e)] < 0) return true;
+        }
+        for (int r = snapshot.reverseStart(v); r < snapshot.reverseEnd(v); r++) {
+            if (patchOf[snapshot.source(r)] < 0) return true;
+        }
+        return false;
+    }
+
+    // Root of v, halving the path on the way; a failed shortcut is harmless
+    private static int find(AtomicIntegerArray parent, int v) {
+        while (true) {
+            int p = parent.get(v);
+            if (p == v) return v;
+            int grandparent = parent.get(p);
+            if (grandparent != p) parent.compareAndSet(v, p, grandparent);
+            v = grandparent;
+        }
+    }
+
+    // Links the larger root below the smaller; retries if either root moved meanwhile
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int ra = find(parent, a);
+            int rb = find(parent, b);
+            if (ra == rb) return;
+            if (ra < rb) {
+                int swap = ra;
+                ra = rb;
+                rb = swap;
+            }
+            if (parent.compareAndSet(ra, ra, rb)) return;
+        }
+    }
+}
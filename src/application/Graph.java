@@ -1,52 +1,227 @@
 package application;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class Graph {
     private static Graph instance;  // Singleton instance
     private List<Node> nodes = new ArrayList<>();
     private List<Edge> edges = new ArrayList<>();
 
+    // Per-node adjacency lists so searches never have to scan the full edge list
+    private final Map<Node, List<Edge>> outgoing = new HashMap<>();
+    private final Map<Node, List<Edge>> incoming = new HashMap<>();
+
+    // Bumped on every structural or terrain change; used to detect stale snapshots
+    private long modCount;
+    private GraphSnapshot snapshot;
+
+    // The most recent changes, oldest first, so caches can invalidate selectively
+    private static final int CHANGE_LOG_SIZE = 1024;
+    private final Deque<GraphChange> changeLog = new ArrayDeque<>();
+
+    // Grid over node positions for nearest-node and radius queries, kept in step with nodes
+    private static final double SPATIAL_CELL_SIZE = 50;
+    private final SpatialIndex spatialIndex = new SpatialIndex(SPATIAL_CELL_SIZE);
+
     private Graph() {}  // Private constructor to prevent direct instantiation
     
  // For storing the initial state
     private List<Node> initialNodes = new ArrayList<>();
     private List<Edge> initialEdges = new ArrayList<>();
 
-    public static Graph getInstance() {
+    public static synchronized Graph getInstance() {
         if (instance == null) {
             instance = new Graph();
         }
         return instance;
     }
 
-    public void addNode(Node node) {
+    public synchronized void addNode(Node node) {
         nodes.add(node);
+        spatialIndex.add(node);
+        recordChange(GraphChange.Kind.NODE_ADDED, node);
     }
 
-    public void addEdge(Edge edge) {
+    public synchronized void addEdge(Edge edge) {
         edges.add(edge);
+        indexEdge(edge);
+        recordChange(GraphChange.Kind.EDGE_ADDED, edge.getFrom());
+    }
+
+    /**
+     * Adds many nodes and edges under one lock, e.g. a batch of entry points and the
+     * edges that attach them. The snapshot is rebuilt once, on its next use, and the
+     * batch takes a single change-log entry, so a large one does not push out the
+     * history that caches need to revalidate.
+     */
+    public synchronized void addAll(Collection<? extends Node> newNodes, Collection<Edge> newEdges) {
+        if (newNodes.isEmpty() && newEdges.isEmpty()) return;
+        Set<Node> tails = new LinkedHashSet<>();
+        for (Node node : newNodes) {
+            nodes.add(node);
+            spatialIndex.add(node);
+        }
+        for (Edge edge : newEdges) {
+            edges.add(edge);
+            indexEdge(edge);
+            tails.add(edge.getFrom());
+        }
+        modCount++;
+        logChange(GraphChange.batchAdded(modCount, new ArrayList<>(tails)));
     }
 
-    public List<Node> getNodes() {
-        return nodes;
+    // Changes the terrain type of a node so that cached snapshots see the new type
+    public synchronized void setNodeType(ImageNode node, String type) {
+        byte oldTerrain = GraphSnapshot.terrainOf(node);
+        node.setType(type);
+        modCount++;
+        logChange(new GraphChange(modCount, GraphChange.Kind.TERRAIN_CHANGED, node,
+            oldTerrain, GraphSnapshot.terrainOf(node)));
     }
 
-    public List<Edge> getEdges() {
-        return edges;
+    // Number of modifications made so far
+    public synchronized long getModCount() {
+        return modCount;
     }
 
-	public void removeNode(Node node) {
-        // Remove all edges connected to this node
+    /**
+     * Changes made after the given modification count, oldest first, or null if the
+     * change log no longer reaches back that far.
+     */
+    public synchronized List<GraphChange> changesSince(long version) {
+        if (version == modCount) return Collections.emptyList();
+        if (changeLog.isEmpty() || changeLog.peekFirst().getVersion() > version + 1) return null;
+        List<GraphChange> result = new ArrayList<>();
+        for (GraphChange change : changeLog) {
+            if (change.getVersion() > version) result.add(change);
+        }
+        return result;
+    }
+
+    // Returns a compact read-only copy of the graph, rebuilt only after modifications.
+    // Mutators and this method are synchronized, so other threads can take snapshots
+    // while the UI edits the graph and then work on them without further locking.
+    public synchronized GraphSnapshot getSnapshot() {
+        if (snapshot == null || snapshot.getVersion() != modCount) {
+            snapshot = new GraphSnapshot(nodes, edges, modCount);
+        }
+        return snapshot;
+    }
+
+    // Closest node to (x, y) that passes the filter, or null if there is none
+    public synchronized Node nearestNode(double x, double y, Predicate<Node> filter) {
+        return spatialIndex.nearest(x, y, filter);
+    }
+
+    public synchronized Node nearestNode(double x, double y) {
+        return spatialIndex.nearest(x, y);
+    }
+
+    // Nodes within radius of (x, y) that pass the filter, in no particular order
+    public synchronized List<Node> nodesWithin(double x, double y, double radius, Predicate<Node> filter) {
+        return spatialIndex.within(x, y, radius, filter);
+    }
+
+    // Nodes of one terrain type (a GraphSnapshot.TERRAIN_* code) within radius of (x, y)
+    public synchronized List<Node> nodesWithin(double x, double y, double radius, byte terrain) {
+        return spatialIndex.within(x, y, radius, node -> GraphSnapshot.terrainOf(node) == terrain);
+    }
+
+    // The readers below return read-only copies taken under the lock, so they never
+    // see a half-applied edit; nodes and edges only change through the mutators above.
+    // Background work should still prefer getSnapshot(), which does not copy per call.
+    public synchronized List<Node> getNodes() {
+        return List.copyOf(nodes);
+    }
+
+    public synchronized List<Edge> getEdges() {
+        return List.copyOf(edges);
+    }
+
+    // Edges leaving the given node
+    public synchronized List<Edge> getOutgoingEdges(Node node) {
+        List<Edge> result = outgoing.get(node);
+        return result != null ? List.copyOf(result) : Collections.emptyList();
+    }
+
+    // Edges arriving at the given node
+    public synchronized List<Edge> getIncomingEdges(Node node) {
+        List<Edge> result = incoming.get(node);
+        return result != null ? List.copyOf(result) : Collections.emptyList();
+    }
+
+    // Removes every edge that starts or ends at the given node, keeping the node itself
+    public synchronized void removeEdgesOf(Node node) {
+        List<Edge> out = outgoing.remove(node);
+        List<Edge> in = incoming.remove(node);
+        if (out == null && in == null) return;
+
+        if (out != null) {
+            for (Edge edge : out) {
+                List<Edge> list = incoming.get(edge.getTo());
+                if (list != null) list.remove(edge);
+            }
+        }
+        if (in != null) {
+            for (Edge edge : in) {
+                List<Edge> list = outgoing.get(edge.getFrom());
+                if (list != null) list.remove(edge);
+            }
+        }
         edges.removeIf(e -> e.getFrom().equals(node) || e.getTo().equals(node));
+        recordChange(GraphChange.Kind.EDGES_REMOVED, node);
+    }
+
+	public synchronized void removeNode(Node node) {
+        // Remove all edges connected to this node
+        removeEdgesOf(node);
         // Remove the node itself
         nodes.remove(node);
+        spatialIndex.remove(node);
+        recordChange(GraphChange.Kind.NODE_REMOVED, node);
     }
 	
-	public void saveInitialState() {
+    /**
+     * Removes the given nodes and all their edges. Unlike calling removeNode for each,
+     * this filters the edge and node lists once for the whole batch.
+     */
+    public synchronized void removeNodes(Collection<? extends Node> removed) {
+        Set<Node> gone = new HashSet<>(removed);
+        for (Node node : gone) {
+            List<Edge> out = outgoing.remove(node);
+            List<Edge> in = incoming.remove(node);
+            if (out != null) {
+                for (Edge edge : out) {
+                    List<Edge> list = incoming.get(edge.getTo());
+                    if (list != null) list.remove(edge);
+                }
+            }
+            if (in != null) {
+                for (Edge edge : in) {
+                    List<Edge> list = outgoing.get(edge.getFrom());
+                    if (list != null) list.remove(edge);
+                }
+            }
+            if (out != null || in != null) recordChange(GraphChange.Kind.EDGES_REMOVED, node);
+        }
+        edges.removeIf(e -> gone.contains(e.getFrom()) || gone.contains(e.getTo()));
+        nodes.removeIf(gone::contains);
+        for (Node node : gone) spatialIndex.remove(node);
+        for (Node node : gone) recordChange(GraphChange.Kind.NODE_REMOVED, node);
+    }
+
+	public synchronized void saveInitialState() {
         initialNodes.clear();
         initialEdges.clear();
         
@@ -69,13 +244,35 @@ public class Graph {
 
 
     // Reset to the initial state
-	public void resetToInitialState() {
+	public synchronized void resetToInitialState() {
         nodes.clear();
         edges.clear();
+        outgoing.clear();
+        incoming.clear();
         
         // Reset to the copied nodes and edges
         nodes.addAll(initialNodes);
-        edges.addAll(initialEdges);
+        spatialIndex.clear();
+        for (Node node : initialNodes) spatialIndex.add(node);
+        for (Edge edge : initialEdges) {
+            addEdge(edge);
+        }
+        recordChange(GraphChange.Kind.RESET, null);
+    }
+
+    private void recordChange(GraphChange.Kind kind, Node node) {
+        modCount++;
+        logChange(new GraphChange(modCount, kind, node));
+    }
+
+    private void logChange(GraphChange change) {
+        if (changeLog.size() == CHANGE_LOG_SIZE) changeLog.pollFirst();
+        changeLog.addLast(change);
+    }
+
+    private void indexEdge(Edge edge) {
+        outgoing.computeIfAbsent(edge.getFrom(), n -> new ArrayList<>()).add(edge);
+        incoming.computeIfAbsent(edge.getTo(), n -> new ArrayList<>()).add(edge);
     }
 	
 	
@@ -0,0 +1,82 @@
+package application;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One entry of the {@link Graph} change log. Caches use it to decide whether a result
+ * computed at an older graph version is still valid: edits that only remove edges or
+ * make terrain more expensive cannot shorten a path, so a cached path that avoids the
+ * edited nodes survives them.
+ */
+public final class GraphChange {
+    public enum Kind {
+        NODE_ADDED,       // an isolated node; no path can use it yet
+        EDGE_ADDED,
+        BATCH_ADDED,      // nodes and edges added together; see getTails()
+        EDGES_REMOVED,    // all edges of node were removed
+        NODE_REMOVED,
+        TERRAIN_CHANGED,
+        RESET
+    }
+
+    private final long version;
+    private final Kind kind;
+    private final Node node;
+    private final byte oldTerrain;
+    private final byte newTerrain;
+    private final List<Node> tails;
+
+    private GraphChange(long version, Kind kind, Node node, byte oldTerrain, byte newTerrain, List<Node> tails) {
+        this.version = version;
+        this.kind = kind;
+        this.node = node;
+        this.oldTerrain = oldTerrain;
+        this.newTerrain = newTerrain;
+        this.tails = tails;
+    }
+
+    GraphChange(long version, Kind kind, Node node, byte oldTerrain, byte newTerrain) {
+        this(version, kind, node, oldTerrain, newTerrain, Collections.emptyList());
+    }
+
+    GraphChange(long version, Kind kind, Node node) {
+        this(version, kind, node, (byte) -1, (byte) -1);
+    }
+
+    // A single entry for a whole batch, however large, so it cannot flush the log
+    static GraphChange batchAdded(long version, List<Node> tails) {
+        return new GraphChange(version, Kind.BATCH_ADDED, null, (byte) -1, (byte) -1, List.copyOf(tails));
+    }
+
+    // Graph modification count right after this change
+    public long getVersion() { return version; }
+    public Kind getKind() { return kind; }
+
+    // Node the change applies to (the source node for EDGE_ADDED), or null for RESET and BATCH_ADDED
+    public Node getNode() { return node; }
+
+    // Distinct source nodes of the edges of a BATCH_ADDED change, empty for other kinds
+    public List<Node> getTails() { return tails; }
+
+    public byte getOldTerrain() { return oldTerrain; }
+    public byte getNewTerrain() { return newTerrain; }
+
+    /**
+     * True if the change cannot make any path cheaper under the given profile, so only
+     * paths through {@link #getNode()} can be affected.
+     */
+    public boolean isSubtractive(RoutingProfile profile) {
+        switch (kind) {
+            case NODE_ADDED:
+            case EDGES_REMOVED:
+            case NODE_REMOVED:
+                return true;
+            case TERRAIN_CHANGED:
+                double cost = node instanceof ImageNode ? ((ImageNode) node).getCost() : 1.0;
+                return profile.weight(1.0, newTerrain, cost) >= profile.weight(1.0, oldTerrain, cost);
+            default:
+                return false;
+        }
+    }
+}
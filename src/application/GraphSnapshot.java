@@ -0,0 +1,203 @@
+package application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, read-only copy of the {@link Graph} in compressed-sparse-row form.
+ * Nodes are addressed by dense int ids (their position in {@link Graph#getNodes()}
+ * at the time the snapshot was taken), so analytics can work on primitive arrays
+ * instead of hashing {@link Node} objects.
+ *
+ * The outgoing edges of node {@code u} are the slots {@code offsets[u] .. offsets[u+1]-1}
+ * of {@code targets}/{@code weights}. The reverse (incoming) adjacency is stored the
+ * same way and refers back to the forward slot of each edge.
+ */
+public final class GraphSnapshot {
+    public static final byte TERRAIN_OTHER = 0;
+    public static final byte TERRAIN_LAND = 1;
+    public static final byte TERRAIN_FOREST = 2;
+    public static final byte TERRAIN_WATER = 3;
+    public static final byte TERRAIN_GRASS = 4;
+    public static final byte TERRAIN_POACHER = 5;
+
+    private final long version;
+    private final Node[] nodes;
+    private final Map<Node, Integer> ids;
+    private final double[] xs;
+    private final double[] ys;
+    private final byte[] terrain;
+    private final double[] cost;
+
+    // Forward CSR
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] tails;
+    private final double[] weights;
+
+    // Reverse CSR: sources[k] is the tail of the edge stored in forward slot reverseEdge[k]
+    private final int[] reverseOffsets;
+    private final int[] sources;
+    private final int[] reverseEdge;
+
+    // Per-profile edge weights (aligned with the forward slots) and their heuristic scales
+    private final Map<RoutingProfile, double[]> profileWeights = new ConcurrentHashMap<>();
+    private final Map<RoutingProfile, Double> heuristicScales = new ConcurrentHashMap<>();
+
+    GraphSnapshot(List<Node> nodeList, List<Edge> edgeList, long version) {
+        this.version = version;
+        int n = nodeList.size();
+        nodes = nodeList.toArray(new Node[0]);
+        ids = new HashMap<>(n * 2);
+        xs = new double[n];
+        ys = new double[n];
+        terrain = new byte[n];
+        cost = new double[n];
+        for (int i = 0; i < n; i++) {
+            Node node = nodes[i];
+            ids.put(node, i);
+            xs[i] = node.getX();
+            ys[i] = node.getY();
+            terrain[i] = terrainOf(node);
+            cost[i] = node instanceof ImageNode ? ((ImageNode) node).getCost() : 1.0;
+        }
+
+        // Resolve edge endpoints once, skipping edges whose endpoints are not in the graph
+        int m = 0;
+        int[] from = new int[edgeList.size()];
+        int[] to = new int[edgeList.size()];
+        double[] w = new double[edgeList.size()];
+        for (Edge edge : edgeList) {
+            Integer u = ids.get(edge.getFrom());
+            Integer v = ids.get(edge.getTo());
+            if (u == null || v == null) continue;
+            from[m] = u;
+            to[m] = v;
+            w[m] = edge.getWeight();
+            m++;
+        }
+
+        // Counting sort by tail for the forward arrays
+        offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) offsets[from[e] + 1]++;
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        targets = new int[m];
+        weights = new double[m];
+        tails = new int[m];
+        int[] fill = new int[n];
+        for (int e = 0; e < m; e++) {
+            int slot = offsets[from[e]] + fill[from[e]]++;
+            targets[slot] = to[e];
+            weights[slot] = w[e];
+            tails[slot] = from[e];
+        }
+
+        // Counting sort by head for the reverse arrays
+        reverseOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) reverseOffsets[targets[e] + 1]++;
+        for (int i = 0; i < n; i++) reverseOffsets[i + 1] += reverseOffsets[i];
+        sources = new int[m];
+        reverseEdge = new int[m];
+        Arrays.fill(fill, 0);
+        for (int e = 0; e < m; e++) {
+            int head = targets[e];
+            int slot = reverseOffsets[head] + fill[head]++;
+            sources[slot] = tails[e];
+            reverseEdge[slot] = e;
+        }
+    }
+
+    // Maps the string terrain type of an ImageNode onto a compact code
+    public static byte terrainOf(Node node) {
+        if (!(node instanceof ImageNode)) return TERRAIN_OTHER;
+        String type = ((ImageNode) node).getType();
+        if (type == null) return TERRAIN_OTHER;
+        switch (type.toLowerCase()) {
+            case "land": return TERRAIN_LAND;
+            case "forest": return TERRAIN_FOREST;
+            case "water": return TERRAIN_WATER;
+            case "grass": return TERRAIN_GRASS;
+            case "poacher": return TERRAIN_POACHER;
+            default: return TERRAIN_OTHER;
+        }
+    }
+
+    // Graph modification count this snapshot was built from
+    public long getVersion() { return version; }
+
+    public int nodeCount() { return nodes.length; }
+    public int edgeCount() { return targets.length; }
+
+    public Node node(int id) { return nodes[id]; }
+
+    // Returns the id of the node, or -1 if it was not part of the graph when the snapshot was taken
+    public int idOf(Node node) {
+        Integer id = ids.get(node);
+        return id != null ? id : -1;
+    }
+
+    public double x(int id) { return xs[id]; }
+    public double y(int id) { return ys[id]; }
+    public byte terrain(int id) { return terrain[id]; }
+    public boolean isWater(int id) { return terrain[id] == TERRAIN_WATER; }
+    public double cost(int id) { return cost[id]; }
+
+    // Forward adjacency: edge slots [edgeStart(u), edgeEnd(u))
+    public int edgeStart(int u) { return offsets[u]; }
+    public int edgeEnd(int u) { return offsets[u + 1]; }
+    public int target(int edge) { return targets[edge]; }
+    public int tail(int edge) { return tails[edge]; }
+    public double weight(int edge) { return weights[edge]; }
+
+    // Reverse adjacency: slots [reverseStart(v), reverseEnd(v)) list the edges entering v
+    public int reverseStart(int v) { return reverseOffsets[v]; }
+    public int reverseEnd(int v) { return reverseOffsets[v + 1]; }
+    public int source(int reverseSlot) { return sources[reverseSlot]; }
+    public int forwardEdge(int reverseSlot) { return reverseEdge[reverseSlot]; }
+
+    public double distance(int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Edge weights under the given routing profile, indexed by forward edge slot.
+     * Impassable edges are positive infinity. Computed once per profile and cached.
+     */
+    public double[] weights(RoutingProfile profile) {
+        return profileWeights.computeIfAbsent(profile, p -> {
+            double[] result = new double[targets.length];
+            for (int e = 0; e < targets.length; e++) {
+                int head = targets[e];
+                result[e] = p.weight(weights[e], terrain[head], cost[head]);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns the largest factor (at most 1) by which straight-line distance can be
+     * scaled and still be a lower bound on every passable edge weight of the profile.
+     * Edge weights built from pixel distances are rounded to two decimals, so for the
+     * plain distance profile this is just below 1. Terrain factors below 1 or manually
+     * weighted edges that are shorter than their endpoints are apart push it towards 0,
+     * in which case a Euclidean heuristic is useless.
+     */
+    public double heuristicScale(RoutingProfile profile) {
+        return heuristicScales.computeIfAbsent(profile, p -> {
+            double[] w = weights(p);
+            double scale = 1.0;
+            for (int e = 0; e < targets.length; e++) {
+                double straight = distance(tails[e], targets[e]);
+                if (straight > 0) {
+                    scale = Math.min(scale, w[e] / straight);
+                }
+            }
+            return Math.max(scale, 0.0);
+        });
+    }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Line;
@@ -25,6 +26,9 @@ public class GraphView {
     
     private static final Color CORRIDOR_COLOR = Color.DARKGREEN;
     private static final Color WATER_HIGHLIGHT_COLOR = Color.DARKBLUE;
+    
+    // Edges colder than this are left out of heatmaps to keep the scene small
+    static final double HEAT_THRESHOLD = 0.05;
 
     public void enableNodeSelection(Consumer<Node> callback) {
         this.nodeSelectionCallback = callback;
@@ -135,8 +139,8 @@ public class GraphView {
             Node current = path.get(i);
             Node next = path.get(i+1);
             
-            Optional<Edge> connection = Graph.getInstance().getEdges().stream()
-                .filter(e -> e.getFrom().equals(current) && e.getTo().equals(next))
+            Optional<Edge> connection = Graph.getInstance().getOutgoingEdges(current).stream()
+                .filter(e -> e.getTo().equals(next))
                 .findFirst();
             
             connection.ifPresent(edge -> {
@@ -183,6 +187,42 @@ public class GraphView {
         }
     }
     
+    /**
+     * Draws one of several ranked alternative routes. Layer 0 is the best route: it is
+     * drawn thickest and red, later layers get thinner and shift toward yellow. Draw the
+     * layers from last to first so the best route ends up on top.
+     */
+    public void appendPathHighlight(List<Node> path, int layer) {
+        if (path == null || path.size() < 2) return;
+
+        double scaleX = graphPane.getWidth() / imageWidth;
+        double scaleY = graphPane.getHeight() / imageHeight;
+        Color pathColor = layerColor(layer);
+        double strokeWidth = Math.max(2.0, 6.0 - layer);
+
+        for (int i = 0; i < path.size() - 1; i++) {
+            Node current = path.get(i);
+            Node next = path.get(i + 1);
+            Line line = new Line(
+                current.getX() * scaleX,
+                current.getY() * scaleY,
+                next.getX() * scaleX,
+                next.getY() * scaleY
+            );
+            line.setStroke(pathColor);
+            line.setStrokeWidth(strokeWidth);
+            line.setStrokeLineCap(StrokeLineCap.ROUND);
+            line.getStyleClass().add("poacher-path");
+            graphPane.getChildren().add(line);
+        }
+    }
+
+    // Red for the best route, then orange to yellow and more transparent for later ones
+    static Color layerColor(int layer) {
+        double h = Math.min(1.0, layer / 4.0);
+        return Color.hsb(50 * h, 1.0, 1.0, 0.95 - 0.4 * h);
+    }
+
     public void updateNodeAppearance(Node node) {
         Circle circle = nodeCircles.get(node);
         if (circle != null) {
@@ -202,6 +242,7 @@ public class GraphView {
         );
         highlight.setStroke(Color.GOLD);
         highlight.setStrokeWidth(3);
+        highlight.getStyleClass().add("critical-node");
         graphPane.getChildren().add(highlight);
     }
     
@@ -237,6 +278,60 @@ public class GraphView {
         }
     }
     
+    // Marks the nodes of the corridor bands on top of the corridor highlights
+    public void highlightCorridorBand(Set<Node> band) {
+        double scaleX = graphPane.getWidth() / imageWidth;
+        double scaleY = graphPane.getHeight() / imageHeight;
+        for (Node node : band) {
+            Circle marker = new Circle(node.getX() * scaleX, node.getY() * scaleY, 3,
+                CORRIDOR_COLOR.deriveColor(0, 1, 1, 0.35));
+            marker.getStyleClass().add("mst-highlight");
+            graphPane.getChildren().add(marker);
+        }
+    }
+
+    /**
+     * Draws a heatmap layer over the graph. edgeHeat holds a value in [0, 1] per forward
+     * edge slot of the snapshot; hotter edges are drawn thicker, redder and on top.
+     */
+    public void showHeatmap(GraphSnapshot snapshot, double[] edgeHeat) {
+        clearHighlights();
+        double scaleX = graphPane.getWidth() / imageWidth;
+        double scaleY = graphPane.getHeight() / imageHeight;
+
+        for (int e : hotEdges(edgeHeat)) {
+            int from = snapshot.tail(e);
+            int to = snapshot.target(e);
+            Line line = new Line(
+                snapshot.x(from) * scaleX,
+                snapshot.y(from) * scaleY,
+                snapshot.x(to) * scaleX,
+                snapshot.y(to) * scaleY
+            );
+            line.setStroke(heatColor(edgeHeat[e]));
+            line.setStrokeWidth(1.5 + 4.5 * edgeHeat[e]);
+            line.setStrokeLineCap(StrokeLineCap.ROUND);
+            line.getStyleClass().add("heatmap");
+            graphPane.getChildren().add(line);
+        }
+    }
+
+    // Edge slots above the heat threshold, coldest first so hot edges end up on top
+    static int[] hotEdges(double[] edgeHeat) {
+        return IntStream.range(0, edgeHeat.length)
+            .filter(e -> edgeHeat[e] >= HEAT_THRESHOLD)
+            .boxed()
+            .sorted((a, b) -> Double.compare(edgeHeat[a], edgeHeat[b]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    // Yellow for low heat through orange to red for the hottest edges
+    static Color heatColor(double heat) {
+        double h = Math.max(0.0, Math.min(1.0, heat));
+        return Color.hsb(60 * (1 - h), 1.0, 1.0, 0.35 + 0.65 * h);
+    }
+    
     private void updateNodeAppearance(Node node, Circle circle) {
         String type = (node instanceof ImageNode) ? 
             ((ImageNode) node).getType() : "default";
@@ -270,7 +365,9 @@ public class GraphView {
             node.getStyleClass().contains("path-highlight") ||
             node.getStyleClass().contains("mst-highlight") ||
             node.getStyleClass().contains("water-highlight") ||
-            node.getStyleClass().contains("poacher-path")
+            node.getStyleClass().contains("poacher-path") ||
+            node.getStyleClass().contains("heatmap") ||
+            node.getStyleClass().contains("critical-node")
         );
     }
    
@@ -0,0 +1,423 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lifelong Planning A* (LPA*) between a fixed start and end node of the live
+ * {@link Graph}. The planner keeps its search state between calls: each
+ * {@link #update()} reads the graph's change log, marks only the nodes whose incoming
+ * costs changed as inconsistent and repairs the shortest path from there. When the user
+ * paints a few obstacles, an update re-expands the nodes around the edit instead of
+ * running a full search again.
+ *
+ * Every node gets a stable planner id on first sight, so search state survives the
+ * snapshot rebuilds that edits cause. Edge costs come straight from the live adjacency
+ * lists under the routing profile. Must be used from the thread that edits the graph,
+ * except for {@link #seed(GraphSnapshot)}, which runs the expensive first search on a
+ * snapshot and may run on any thread.
+ */
+public final class IncrementalPlanner {
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    private final Node start;
+    private final Node goal;
+    private final RoutingProfile profile;
+    private final Graph graph = Graph.getInstance();
+
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private Node[] nodes = new Node[0];
+    private double[] g = new double[0];      // current distance estimate from start
+    private double[] rhs = new double[0];    // one-step lookahead from the predecessors
+    private int[] parent = new int[0];       // predecessor that gives rhs, or -1
+    private int size;
+    private final KeyHeap open = new KeyHeap();
+
+    private double heuristicScale;
+    private long version = -1;               // graph version the state reflects, -1 before the first search
+    private boolean endpointRemoved;
+    private int lastExpansions;
+
+    public IncrementalPlanner(Node start, Node goal, RoutingProfile profile) {
+        this.start = start;
+        this.goal = goal;
+        this.profile = profile;
+    }
+
+    public Node getStart() { return start; }
+    public Node getGoal() { return goal; }
+
+    // Graph version the search state reflects, or -1 before the first search
+    public long getVersion() { return version; }
+
+    // True once the start or goal has left the graph; no path is found after that
+    public boolean isEndpointRemoved() { return endpointRemoved; }
+
+    // Nodes expanded by the last update; a repair after a local edit expands only a few
+    public int getLastExpansions() { return lastExpansions; }
+
+    // Length of the current path, or positive infinity if the goal cannot be reached
+    public double getDistance() {
+        Integer t = ids.get(goal);
+        return t == null ? INF : g[t];
+    }
+
+    /**
+     * Brings the path up to date with the graph and returns it, or an empty list if the
+     * goal cannot be reached. Unless the planner was seeded, the first call runs a full
+     * search; later calls repair the previous one using the changes logged since. If the
+     * log no longer reaches back far enough, or the graph was reset, the planner starts
+     * over.
+     */
+    public List<Node> update() {
+        List<GraphChange> changes = version < 0 ? null : graph.changesSince(version);
+        if (changes == null || containsReset(changes)) {
+            // Full restart; the endpoints may have been replaced by a reset
+            seed(graph.getSnapshot());
+        } else {
+            version = graph.getModCount();
+            for (GraphChange change : changes) apply(change);
+            if (!endpointRemoved) lastExpansions = computeShortestPath();
+        }
+        return endpointRemoved ? new ArrayList<>() : path();
+    }
+
+    /**
+     * Runs the full search on the snapshot rather than the live graph, so it can run off
+     * the editing thread while the user keeps working. The next {@link #update()} then
+     * only repairs it with the edits made since the snapshot was taken. The planner must
+     * not be used elsewhere until this returns.
+     */
+    public void seed(GraphSnapshot snapshot) {
+        version = snapshot.getVersion();
+        int snapshotStart = snapshot.idOf(start);
+        endpointRemoved = snapshotStart < 0 || snapshot.idOf(goal) < 0;
+        if (endpointRemoved) return;
+
+        ids.clear();
+        size = 0;
+        open.clear();
+        heuristicScale = snapshot.heuristicScale(profile);
+        int s = id(start);
+        if (profile.isPassable(snapshot.terrain(snapshotStart))) {
+            rhs[s] = 0.0;
+            open.push(s, key1(s), key2(s));
+        }
+
+        // Every g starts out infinite, so the first search only ever lowers it
+        double[] weights = snapshot.weights(profile);
+        int t = id(goal);
+        int expansions = 0;
+        while (!open.isEmpty() && (compare(open.topKey1(), open.topKey2(), key1(t), key2(t)) < 0 || rhs[t] != g[t])) {
+            int u = open.pop();
+            expansions++;
+            g[u] = rhs[u];
+            int from = snapshot.idOf(nodes[u]);
+            for (int e = snapshot.edgeStart(from); e < snapshot.edgeEnd(from); e++) {
+                if (weights[e] == INF) continue;
+                int v = id(snapshot.node(snapshot.target(e)));
+                if (g[u] + weights[e] < rhs[v]) {
+                    rhs[v] = g[u] + weights[e];
+                    parent[v] = u;
+                    queue(v);
+                }
+            }
+        }
+        lastExpansions = expansions;
+    }
+
+    private static boolean containsReset(List<GraphChange> changes) {
+        for (GraphChange change : changes) {
+            if (change.getKind() == GraphChange.Kind.RESET) return true;
+        }
+        return false;
+    }
+
+    // Marks the nodes whose incoming costs may have changed as needing a recheck
+    private void apply(GraphChange change) {
+        Node node = change.getNode();
+        switch (change.getKind()) {
+            case EDGE_ADDED:
+                recheckTargetsOf(node);
+                break;
+            case BATCH_ADDED:
+                for (Node tail : change.getTails()) recheckTargetsOf(tail);
+                break;
+            case TERRAIN_CHANGED:
+                // Edge costs depend on the terrain they lead into
+                for (Edge edge : graph.getIncomingEdges(node)) lowerScaleFor(edge);
+                updateVertex(id(node));
+                break;
+            case NODE_REMOVED:
+                if (node == start || node == goal) endpointRemoved = true;
+                recheckChildrenOf(node);
+                break;
+            case EDGES_REMOVED:
+                recheckChildrenOf(node);
+                break;
+            default:
+                break;  // an added node has no edges yet
+        }
+    }
+
+    // The log only names the tail of added edges; recheck everything it now leads to
+    private void recheckTargetsOf(Node node) {
+        for (Edge edge : graph.getOutgoingEdges(node)) {
+            lowerScaleFor(edge);
+            updateVertex(id(edge.getTo()));
+        }
+    }
+
+    /**
+     * After edges at the node were removed: they are gone, but only nodes that took
+     * their value from this node can get worse; the others keep an equally good
+     * predecessor.
+     */
+    private void recheckChildrenOf(Node node) {
+        Integer removed = ids.get(node);
+        if (removed == null) return;
+        updateVertex(removed);
+        for (int v = 0; v < size; v++) {
+            if (parent[v] == removed) updateVertex(v);
+        }
+    }
+
+    /**
+     * Processes inconsistent nodes in key order until the goal is consistent and no
+     * queued node can still improve it. Returns the number of expansions.
+     */
+    private int computeShortestPath() {
+        int t = id(goal);
+        int expansions = 0;
+        while (!open.isEmpty() && (compare(open.topKey1(), open.topKey2(), key1(t), key2(t)) < 0 || rhs[t] != g[t])) {
+            int u = open.pop();
+            expansions++;
+            if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                for (Edge edge : graph.getOutgoingEdges(nodes[u])) {
+                    double w = weight(edge);
+                    if (w == INF) continue;
+                    int v = id(edge.getTo());
+                    if (g[u] + w < rhs[v]) {
+                        rhs[v] = g[u] + w;
+                        parent[v] = u;
+                        queue(v);
+                    }
+                }
+            } else {
+                g[u] = INF;
+                updateVertex(u);
+                for (Edge edge : graph.getOutgoingEdges(nodes[u])) {
+                    int v = id(edge.getTo());
+                    if (parent[v] == u) updateVertex(v);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    // Recomputes rhs from the node's predecessors and requeues it if inconsistent
+    private void updateVertex(int v) {
+        if (nodes[v] == start) {
+            rhs[v] = profile.isPassable(GraphSnapshot.terrainOf(start)) ? 0.0 : INF;
+        } else {
+            double best = INF;
+            int bestParent = -1;
+            for (Edge edge : graph.getIncomingEdges(nodes[v])) {
+                Integer u = ids.get(edge.getFrom());
+                if (u == null || g[u] == INF) continue;
+                double d = g[u] + weight(edge);
+                if (d < best) {
+                    best = d;
+                    bestParent = u;
+                }
+            }
+            rhs[v] = best;
+            parent[v] = bestParent;
+        }
+        queue(v);
+    }
+
+    private void queue(int v) {
+        if (g[v] != rhs[v]) {
+            open.push(v, key1(v), key2(v));
+        } else {
+            open.remove(v);
+        }
+    }
+
+    // Follows the parents back from the goal; parents are consistent once the search is done
+    private List<Node> path() {
+        int t = id(goal);
+        if (g[t] == INF) return new ArrayList<>();
+        List<Node> path = new ArrayList<>();
+        for (int v = t; v >= 0 && path.size() <= size; v = parent[v]) {
+            path.add(nodes[v]);
+            if (nodes[v] == start) {
+                Collections.reverse(path);
+                return path;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private double weight(Edge edge) {
+        Node to = edge.getTo();
+        double cost = to instanceof ImageNode ? ((ImageNode) to).getCost() : 1.0;
+        return profile.weight(edge.getWeight(), GraphSnapshot.terrainOf(to), cost);
+    }
+
+    /**
+     * Keeps the straight-line heuristic a lower bound when an edit adds an edge that is
+     * cheaper per pixel than any before. Lowering it keeps it consistent, so only the
+     * queued keys need recomputing.
+     */
+    private void lowerScaleFor(Edge edge) {
+        double straight = Math.hypot(edge.getFrom().getX() - edge.getTo().getX(),
+            edge.getFrom().getY() - edge.getTo().getY());
+        if (straight <= 0) return;
+        double ratio = weight(edge) / straight;
+        if (ratio < heuristicScale) {
+            heuristicScale = Math.max(ratio, 0.0);
+            open.rekey();
+        }
+    }
+
+    private double heuristic(int v) {
+        return heuristicScale * Math.hypot(nodes[v].getX() - goal.getX(), nodes[v].getY() - goal.getY());
+    }
+
+    private double key1(int v) { return Math.min(g[v], rhs[v]) + heuristic(v); }
+    private double key2(int v) { return Math.min(g[v], rhs[v]); }
+
+    private static int compare(double a1, double a2, double b1, double b2) {
+        int c = Double.compare(a1, b1);
+        return c != 0 ? c : Double.compare(a2, b2);
+    }
+
+    // Planner id of the node, assigned on first sight with g = rhs = infinity
+    private int id(Node node) {
+        Integer existing = ids.get(node);
+        if (existing != null) return existing;
+        if (size == nodes.length) {
+            int capacity = Math.max(64, size * 2);
+            nodes = Arrays.copyOf(nodes, capacity);
+            g = Arrays.copyOf(g, capacity);
+            rhs = Arrays.copyOf(rhs, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            open.ensureCapacity(capacity);
+        }
+        int v = size++;
+        ids.put(node, v);
+        nodes[v] = node;
+        g[v] = INF;
+        rhs[v] = INF;
+        parent[v] = -1;
+        return v;
+    }
+
+    /**
+     * Indexed binary heap ordered by the two-part LPA* key (k1, k2), compared
+     * lexicographically. Pushing a queued id updates its key in place.
+     */
+    private final class KeyHeap {
+        private int[] heap = new int[0];
+        private int[] position = new int[0];   // index in heap, or -1
+        private double[] k1 = new double[0];
+        private double[] k2 = new double[0];
+        private int count;
+
+        void ensureCapacity(int capacity) {
+            int old = position.length;
+            if (capacity <= old) return;
+            heap = Arrays.copyOf(heap, capacity);
+            position = Arrays.copyOf(position, capacity);
+            Arrays.fill(position, old, capacity, -1);
+            k1 = Arrays.copyOf(k1, capacity);
+            k2 = Arrays.copyOf(k2, capacity);
+        }
+
+        boolean isEmpty() { return count == 0; }
+        double topKey1() { return k1[heap[0]]; }
+        double topKey2() { return k2[heap[0]]; }
+
+        void clear() {
+            for (int i = 0; i < count; i++) position[heap[i]] = -1;
+            count = 0;
+        }
+
+        void push(int v, double key1, double key2) {
+            if (position[v] < 0) {
+                position[v] = count;
+                heap[count++] = v;
+            }
+            k1[v] = key1;
+            k2[v] = key2;
+            siftUp(position[v]);
+            siftDown(position[v]);
+        }
+
+        int pop() {
+            int top = heap[0];
+            remove(top);
+            return top;
+        }
+
+        void remove(int v) {
+            int i = position[v];
+            if (i < 0) return;
+            position[v] = -1;
+            int last = heap[--count];
+            if (i == count) return;
+            heap[i] = last;
+            position[last] = i;
+            siftUp(i);
+            siftDown(position[last]);
+        }
+
+        // Recomputes every queued key after the heuristic changed
+        void rekey() {
+            for (int i = 0; i < count; i++) {
+                k1[heap[i]] = key1(heap[i]);
+                k2[heap[i]] = key2(heap[i]);
+            }
+            for (int i = count / 2 - 1; i >= 0; i--) siftDown(i);
+        }
+
+        private boolean less(int a, int b) {
+            return compare(k1[a], k2[a], k1[b], k2[b]) < 0;
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int p = (i - 1) / 2;
+                if (!less(v, heap[p])) break;
+                heap[i] = heap[p];
+                position[heap[i]] = i;
+                i = p;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= count) break;
+                if (c + 1 < count && less(heap[c + 1], heap[c])) c++;
+                if (!less(heap[c], v)) break;
+                heap[i] = heap[c];
+                position[heap[i]] = i;
+                i = c;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo model of poacher incursions. Each incursion starts at a random entry node
+ * and walks toward the forest: at every step it picks an outgoing edge at random, with
+ * edges that cost little and bring it closer to the nearest forest being much more
+ * likely. Every incursion draws its own noisy terrain preferences, so the paths spread
+ * out over plausible alternatives instead of all following the single cheapest route.
+ * Nodes near rangers detect the walker with a given probability, which ends it.
+ *
+ * Incursions are split into fixed chunks and each chunk gets its own random stream,
+ * split off a seeded root in chunk order. The result therefore depends only on the
+ * seed, not on how the chunks are scheduled across threads. Visit counts go into
+ * per-slot arrays (see {@link ParallelWork}) that are summed at the end, so no locking
+ * is needed.
+ */
+public final class IncursionSimulator {
+    private static final int CHUNK_SIZE = 4096;
+
+    private final GraphSnapshot snapshot;
+    private final RoutingProfile profile;
+
+    private int incursions = 100_000;
+    private long seed = 42L;
+    private int maxSteps = 2_000;
+    private double preferenceNoise = 0.5;   // terrain factors vary by up to e^(+/-noise)
+    private double directedness = 3.0;      // how strongly walkers head for the forest
+    private double detectionRadius = 40.0;  // pixels
+    private double detectionProbability = 0.2;
+
+    public IncursionSimulator(GraphSnapshot snapshot, RoutingProfile profile) {
+        this.snapshot = snapshot;
+        this.profile = profile;
+    }
+
+    public IncursionSimulator setIncursions(int incursions) { this.incursions = incursions; return this; }
+    public IncursionSimulator setSeed(long seed) { this.seed = seed; return this; }
+    public IncursionSimulator setMaxSteps(int maxSteps) { this.maxSteps = maxSteps; return this; }
+    public IncursionSimulator setPreferenceNoise(double noise) { this.preferenceNoise = noise; return this; }
+    public IncursionSimulator setDirectedness(double directedness) { this.directedness = directedness; return this; }
+
+    // Each ranger within radius pixels of a node gets one chance to spot a walker passing it
+    public IncursionSimulator setDetection(double radius, double probability) {
+        this.detectionRadius = radius;
+        this.detectionProbability = probability;
+        return this;
+    }
+
+    // Outcome of a simulation run
+    public static final class Result {
+        private final double[] visitProbability;
+        private final long incursions;
+        private final long reachedForest;
+        private final long detected;
+
+        Result(double[] visitProbability, long incursions, long reachedForest, long detected) {
+            this.visitProbability = visitProbability;
+            this.incursions = incursions;
+            this.reachedForest = reachedForest;
+            this.detected = detected;
+        }
+
+        // Fraction of incursions that passed through each node, indexed by snapshot id
+        public double[] getVisitProbability() { return visitProbability; }
+        public long getIncursions() { return incursions; }
+        public double getReachedForestRate() { return incursions == 0 ? 0.0 : (double) reachedForest / incursions; }
+        public double getDetectionRate() { return incursions == 0 ? 0.0 : (double) detected / incursions; }
+
+        /**
+         * Visit probabilities spread onto the snapshot's forward edge slots for the heatmap
+         * layer: each edge gets the lower probability of its two ends, scaled to [0, 1].
+         */
+        public double[] edgeHeat(GraphSnapshot snapshot) {
+            double max = Arrays.stream(visitProbability).max().orElse(0.0);
+            double[] heat = new double[snapshot.edgeCount()];
+            if (max <= 0.0) return heat;
+            for (int e = 0; e < heat.length; e++) {
+                heat[e] = Math.min(visitProbability[snapshot.tail(e)], visitProbability[snapshot.target(e)]) / max;
+            }
+            return heat;
+        }
+    }
+
+    /**
+     * Runs the configured number of incursions from random entry nodes, with rangers
+     * posted at the given node ids (may be empty).
+     */
+    public Result run(int[] entries, int[] rangers) {
+        return run(entries, rangers, CancellationToken.NONE);
+    }
+
+    // Like the above, but checks the token before every chunk; throws CancellationException once it is cancelled
+    public Result run(int[] entries, int[] rangers, CancellationToken token) {
+        int n = snapshot.nodeCount();
+        int[] starts = Arrays.stream(entries)
+            .filter(v -> profile.isPassable(snapshot.terrain(v)))
+            .toArray();
+        if (starts.length == 0 || incursions <= 0) return new Result(new double[n], 0, 0, 0);
+
+        double[] weights = snapshot.weights(profile);
+        ForestDistanceField forestDistance = ForestDistanceField.build(snapshot, profile);
+        double[] detection = detectionChance(rangers);
+        double stepScale = typicalWeight(weights);
+
+        // One stream per chunk, split off the root in chunk order for reproducibility
+        int chunks = (incursions + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) streams[c] = root.split();
+
+        List<Walker> walkers = ParallelWork.run(chunks, ParallelWork.defaultWorkers(),
+            () -> new Walker(weights, forestDistance, detection, stepScale),
+            (walker, c) -> {
+                if (token.isCancelled()) return;
+                int count = Math.min(CHUNK_SIZE, incursions - c * CHUNK_SIZE);
+                walker.walk(streams[c], starts, count);
+            });
+        if (token.isCancelled()) throw new CancellationException("Incursion simulation cancelled");
+
+        long[] visits = new long[n];
+        long reached = 0;
+        long detected = 0;
+        for (Walker walker : walkers) {
+            for (int v = 0; v < n; v++) visits[v] += walker.visits[v];
+            reached += walker.reachedForest;
+            detected += walker.detected;
+        }
+        double[] probability = new double[n];
+        for (int v = 0; v < n; v++) probability[v] = (double) visits[v] / incursions;
+        return new Result(probability, incursions, reached, detected);
+    }
+
+    // Per-node chance of being spotted: 1 - (1 - p)^k for k rangers within the radius
+    private double[] detectionChance(int[] rangers) {
+        double[] chance = new double[snapshot.nodeCount()];
+        if (rangers.length == 0 || detectionProbability <= 0.0) return chance;
+        double radiusSquared = detectionRadius * detectionRadius;
+        IntStream.range(0, chance.length).parallel().forEach(v -> {
+            double miss = 1.0;
+            for (int ranger : rangers) {
+                double dx = snapshot.x(v) - snapshot.x(ranger);
+                double dy = snapshot.y(v) - snapshot.y(ranger);
+                if (dx * dx + dy * dy <= radiusSquared) miss *= 1.0 - detectionProbability;
+            }
+            chance[v] = 1.0 - miss;
+        });
+        return chance;
+    }
+
+    // Mean finite edge weight, used to make the step preferences independent of map scale
+    private static double typicalWeight(double[] weights) {
+        double sum = 0.0;
+        int count = 0;
+        for (double w : weights) {
+            if (w != Double.POSITIVE_INFINITY) {
+                sum += w;
+                count++;
+            }
+        }
+        return count == 0 || sum == 0.0 ? 1.0 : sum / count;
+    }
+
+    // Walk state and counters of one worker slot
+    private final class Walker {
+        final double[] weights;
+        final ForestDistanceField forestDistance;
+        final double[] detection;
+        final double stepScale;
+
+        final long[] visits;
+        final int[] visitStamp;    // last incursion that counted each node, so each counts once
+        int stamp;
+        long reachedForest;
+        long detected;
+
+        final double[] preference = new double[8];
+        double[] choice = new double[8];
+
+        Walker(double[] weights, ForestDistanceField forestDistance, double[] detection, double stepScale) {
+            this.weights = weights;
+            this.forestDistance = forestDistance;
+            this.detection = detection;
+            this.stepScale = stepScale;
+            visits = new long[snapshot.nodeCount()];
+            visitStamp = new int[snapshot.nodeCount()];
+        }
+
+        void walk(SplittableRandom random, int[] starts, int count) {
+            for (int i = 0; i < count; i++) {
+                if (++stamp == Integer.MAX_VALUE) {
+                    Arrays.fill(visitStamp, 0);
+                    stamp = 1;
+                }
+                for (int t = 0; t < preference.length; t++) {
+                    preference[t] = Math.exp(preferenceNoise * (2.0 * random.nextDouble() - 1.0));
+                }
+                incursion(random, starts[random.nextInt(starts.length)]);
+            }
+        }
+
+        private void incursion(SplittableRandom random, int start) {
+            int current = start;
+            for (int step = 0; step < maxSteps; step++) {
+                if (visitStamp[current] != stamp) {
+                    visitStamp[current] = stamp;
+                    visits[current]++;
+                }
+                if (detection[current] > 0.0 && random.nextDouble() < detection[current]) {
+                    detected++;
+                    return;
+                }
+                if (snapshot.terrain(current) == GraphSnapshot.TERRAIN_FOREST) {
+                    reachedForest++;
+                    return;
+                }
+                current = nextNode(random, current);
+                if (current < 0) return;  // stranded: no way on toward the forest
+            }
+        }
+
+        // Samples an outgoing edge with probability ~ exp(-directedness * cost / stepScale)
+        private int nextNode(SplittableRandom random, int u) {
+            int first = snapshot.edgeStart(u);
+            int degree = snapshot.edgeEnd(u) - first;
+            if (degree > choice.length) choice = new double[degree];
+
+            double here = forestDistance.distance(u);
+            double total = 0.0;
+            for (int k = 0; k < degree; k++) {
+                int e = first + k;
+                int v = snapshot.target(e);
+                double w = weights[e];
+                if (w == Double.POSITIVE_INFINITY || !forestDistance.reachesForest(v)) {
+                    choice[k] = 0.0;
+                    continue;
+                }
+                double cost = w * preference[snapshot.terrain(v) & 7] + forestDistance.distance(v) - here;
+                choice[k] = Math.exp(-directedness * cost / stepScale);
+                total += choice[k];
+            }
+            if (total <= 0.0) return -1;
+
+            double pick = random.nextDouble() * total;
+            for (int k = 0; k < degree; k++) {
+                pick -= choice[k];
+                if (pick < 0.0 && choice[k] > 0.0) return snapshot.target(first + k);
+            }
+            for (int k = degree - 1; k >= 0; k--) {
+                if (choice[k] > 0.0) return snapshot.target(first + k);  // rounding fallback
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Indexed 4-ary min-heap over int ids in the range [0, capacity) with double keys.
+ * Each id is stored at most once, so decrease-key is an O(log n) sift instead of the
+ * O(n) remove + add that {@link java.util.PriorityQueue} needs, and nothing is
+ * allocated per push.
+ */
+public final class IndexedMinHeap {
+    private static final int ARITY = 4;
+
+    private int[] heap;        // heap position -> id
+    private double[] keys;     // heap position -> key
+    private int[] position;    // id -> heap position, or -1 when absent
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[Math.max(capacity, 1)];
+        keys = new double[Math.max(capacity, 1)];
+        position = new int[Math.max(capacity, 1)];
+        Arrays.fill(position, -1);
+    }
+
+    // Grows the id range; existing entries are kept
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length) return;
+        int oldLength = position.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        position = Arrays.copyOf(position, capacity);
+        Arrays.fill(position, oldLength, capacity, -1);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public boolean contains(int id) { return position[id] >= 0; }
+
+    // Current key of an id that is in the heap
+    public double keyOf(int id) { return keys[position[id]]; }
+
+    /**
+     * Inserts the id, or lowers its key if it is already queued with a larger one.
+     * Returns true if the heap changed.
+     */
+    public boolean insertOrDecrease(int id, double key) {
+        int pos = position[id];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = id;
+            keys[pos] = key;
+            position[id] = pos;
+            siftUp(pos);
+            return true;
+        }
+        if (key < keys[pos]) {
+            keys[pos] = key;
+            siftUp(pos);
+            return true;
+        }
+        return false;
+    }
+
+    // Sets the key of an id to any value, inserting it if needed
+    public void update(int id, double key) {
+        int pos = position[id];
+        if (pos < 0) {
+            insertOrDecrease(id, key);
+        } else if (key < keys[pos]) {
+            keys[pos] = key;
+            siftUp(pos);
+        } else if (key > keys[pos]) {
+            keys[pos] = key;
+            siftDown(pos);
+        }
+    }
+
+    public int peek() { return heap[0]; }
+    public double peekKey() { return keys[0]; }
+
+    // Removes and returns the id with the smallest key
+    public int poll() {
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    // Removes the id if it is queued
+    public void remove(int id) {
+        int pos = position[id];
+        if (pos >= 0) removeAt(pos);
+    }
+
+    // Empties the heap in O(size), independent of the capacity
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int pos) {
+        int id = heap[pos];
+        position[id] = -1;
+        size--;
+        if (pos == size) return;
+
+        heap[pos] = heap[size];
+        keys[pos] = keys[size];
+        position[heap[pos]] = pos;
+        if (pos > 0 && keys[pos] < keys[(pos - 1) / ARITY]) {
+            siftUp(pos);
+        } else {
+            siftDown(pos);
+        }
+    }
+
+    private void siftUp(int pos) {
+        int id = heap[pos];
+        double key = keys[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) / ARITY;
+            if (keys[parent] <= key) break;
+            heap[pos] = heap[parent];
+            keys[pos] = keys[parent];
+            position[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = id;
+        keys[pos] = key;
+        position[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int id = heap[pos];
+        double key = keys[pos];
+        while (true) {
+            int first = pos * ARITY + 1;
+            if (first >= size) break;
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            for (int child = first + 1; child < last; child++) {
+                if (keys[child] < keys[best]) best = child;
+            }
+            if (keys[best] >= key) break;
+            heap[pos] = heap[best];
+            keys[pos] = keys[best];
+            position[heap[pos]] = pos;
+            pos = best;
+        }
+        heap[pos] = id;
+        keys[pos] = key;
+        position[id] = pos;
+    }
+}
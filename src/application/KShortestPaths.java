@@ -0,0 +1,303 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Ranked alternative routes between two nodes of a {@link GraphSnapshot}, behind
+ * {@link PathFinder#kShortestPaths} and {@link PathFinder#diversePaths}.
+ *
+ * Both modes start from one reverse {@link ShortestPathTree} toward the target. Its
+ * distances are exact lower bounds for every later search: Yen's spur searches only
+ * remove nodes and edges, and the penalty mode only makes edges more expensive. Spur
+ * searches therefore run as A* with the tree distances as heuristic, and a spur whose
+ * tree path avoids everything removed is taken straight from the tree with no search.
+ *
+ * A {@link CancellationToken} stops the searches early; the routes accepted until then
+ * are returned.
+ */
+final class KShortestPaths {
+    // Factor applied to the weight of every edge of an accepted route in the penalty mode
+    private static final double PENALTY_FACTOR = 1.5;
+
+    // Penalty rounds allowed per requested route before giving up on finding more
+    private static final int ROUNDS_PER_PATH = 4;
+
+    private final GraphSnapshot graph;
+    private final double[] weights;
+    private final int source;
+    private final int target;
+    private final ShortestPathTree tree;
+    private final CancellationToken token;
+
+    private final int[] blocked;     // stamp of the spur round that removed each node
+    private int blockStamp;
+    private int settled;
+
+    // A route as edge slots from the source, with its length under the unmodified weights
+    private static final class Route implements Comparable<Route> {
+        final int[] edges;
+        final double length;
+
+        Route(int[] edges, double length) {
+            this.edges = edges;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Route other) {
+            int byLength = Double.compare(length, other.length);
+            return byLength != 0 ? byLength : Integer.compare(edges.length, other.edges.length);
+        }
+    }
+
+    KShortestPaths(GraphSnapshot graph, RoutingProfile profile, int source, int target, CancellationToken token) {
+        this.graph = graph;
+        this.weights = graph.weights(profile);
+        this.source = source;
+        this.target = target;
+        this.token = token;
+        this.tree = ShortestPathTree.toTarget(graph, profile, target);
+        this.blocked = new int[graph.nodeCount()];
+        this.settled = tree.getSettledNodes();
+    }
+
+    /**
+     * Yen's algorithm: the k shortest loopless routes, shortest first. Every accepted
+     * route is split at each of its nodes into a root and a spur; the spur search from
+     * that node may not reuse the root's nodes nor the next edge of any accepted route
+     * sharing the same root.
+     */
+    List<PathFinder.SearchResult> yen(int k) {
+        List<PathFinder.SearchResult> results = new ArrayList<>();
+        Route first = treeRoute(source);
+        if (first == null || k <= 0) return results;
+
+        List<Route> accepted = new ArrayList<>();
+        PriorityQueue<Route> candidates = new PriorityQueue<>();
+        Set<List<Integer>> seen = new HashSet<>();
+        accepted.add(first);
+        seen.add(key(first.edges));
+
+        while (accepted.size() < k && !token.isCancelled()) {
+            Route previous = accepted.get(accepted.size() - 1);
+            int spurNode = source;
+            for (int i = 0; i < previous.edges.length; i++) {
+                // Nodes of the root path may not be revisited by the spur
+                clearBlocked();
+                int node = source;
+                for (int j = 0; j < i; j++) {
+                    blocked[node] = blockStamp;
+                    node = graph.target(previous.edges[j]);
+                }
+
+                // Edges leaving the spur node along accepted routes with the same root
+                int[] removed = new int[accepted.size()];
+                int removedCount = 0;
+                for (Route route : accepted) {
+                    if (route.edges.length > i && sharesRoot(route.edges, previous.edges, i)) {
+                        removed[removedCount++] = route.edges[i];
+                    }
+                }
+
+                int[] spur = spurPath(spurNode, removed, removedCount);
+                if (spur != null) {
+                    int[] edges = Arrays.copyOf(previous.edges, i + spur.length);
+                    System.arraycopy(spur, 0, edges, i, spur.length);
+                    if (seen.add(key(edges))) candidates.add(new Route(edges, length(edges)));
+                }
+
+                spurNode = graph.target(previous.edges[i]);
+            }
+            // A stopped spur search may have missed the next shortest route
+            if (candidates.isEmpty() || token.isCancelled()) break;
+            accepted.add(candidates.poll());
+        }
+
+        for (Route route : accepted) results.add(toResult(route));
+        return results;
+    }
+
+    /**
+     * Penalty method: after each route is found, the edges it uses get more expensive and
+     * the search is repeated, which pushes the next route away from the earlier ones. A
+     * route is kept only if at most maxOverlap of its length runs along any kept route.
+     * Much cheaper than Yen, but the routes are not guaranteed to be the k shortest.
+     */
+    List<PathFinder.SearchResult> diverse(int k, double maxOverlap) {
+        List<PathFinder.SearchResult> results = new ArrayList<>();
+        Route first = treeRoute(source);
+        if (first == null || k <= 0) return results;
+
+        clearBlocked();
+        List<Route> accepted = new ArrayList<>();
+        accepted.add(first);
+        double[] penalized = weights.clone();
+        penalize(penalized, first.edges);
+
+        for (int round = 1; accepted.size() < k && round < k * ROUNDS_PER_PATH && !token.isCancelled(); round++) {
+            int[] edges = search(source, penalized, null, 0);
+            if (edges == null) break;
+            Route route = new Route(edges, length(edges));
+            penalize(penalized, edges);
+            if (overlapsAny(route, accepted, maxOverlap)) continue;
+            accepted.add(route);
+        }
+
+        accepted.sort(null);
+        for (Route route : accepted) results.add(toResult(route));
+        return results;
+    }
+
+    // Spur route from the tree if it avoids the removals, otherwise by a restricted search
+    private int[] spurPath(int spurNode, int[] removed, int removedCount) {
+        int[] fromTree = treeEdges(spurNode);
+        if (fromTree != null && !contains(removed, removedCount, fromTree.length > 0 ? fromTree[0] : -1)) {
+            boolean clear = true;
+            for (int e : fromTree) {
+                if (blocked[graph.target(e)] == blockStamp) {
+                    clear = false;
+                    break;
+                }
+            }
+            if (clear) return fromTree;
+        }
+        return search(spurNode, weights, removed, removedCount);
+    }
+
+    /**
+     * A* from start to the target with the tree distances as heuristic. Nodes blocked in
+     * the current spur round and the removed edges are skipped. Returns edge slots, or
+     * null if the target cannot be reached or the token stopped the search.
+     */
+    private int[] search(int start, double[] cost, int[] removed, int removedCount) {
+        if (!tree.reaches(start)) return null;
+        SearchWorkspace.Frontier frontier = SearchWorkspace.forThread(graph.nodeCount()).forward();
+        IndexedMinHeap open = frontier.queue();
+        frontier.label(start, 0.0, -1);  // prev holds the edge slot used to reach a node
+        open.insertOrDecrease(start, tree.distance(start));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            settled++;
+            if ((settled & 255) == 0 && token.isCancelled()) return null;
+            if (current == target) return edgesTo(frontier, target);
+            frontier.close(current);
+
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                if (cost[e] == Double.POSITIVE_INFINITY) continue;
+                int neighbor = graph.target(e);
+                if (blocked[neighbor] == blockStamp) continue;
+                if (current == start && contains(removed, removedCount, e)) continue;
+                double remaining = tree.distance(neighbor);
+                if (remaining == Double.POSITIVE_INFINITY) continue;  // cannot reach the target
+                double newDist = frontier.dist(current) + cost[e];
+                if (!frontier.isClosed(neighbor) && newDist < frontier.dist(neighbor)) {
+                    frontier.label(neighbor, newDist, e);
+                    open.insertOrDecrease(neighbor, newDist + remaining);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] edgesTo(SearchWorkspace.Frontier frontier, int end) {
+        int count = 0;
+        for (int e = frontier.prev(end); e >= 0; e = frontier.prev(graph.tail(e))) count++;
+        int[] edges = new int[count];
+        for (int e = frontier.prev(end); e >= 0; e = frontier.prev(graph.tail(e))) edges[--count] = e;
+        return edges;
+    }
+
+    // Starts a new round in which no node is blocked
+    private void clearBlocked() {
+        if (++blockStamp == Integer.MAX_VALUE) {
+            Arrays.fill(blocked, 0);
+            blockStamp = 1;
+        }
+    }
+
+    // Route along the shortest-path tree from v, or null if v does not reach the target
+    private Route treeRoute(int v) {
+        int[] edges = treeEdges(v);
+        return edges == null ? null : new Route(edges, length(edges));
+    }
+
+    private int[] treeEdges(int v) {
+        if (!tree.reaches(v)) return null;
+        int count = 0;
+        for (int u = v; tree.successor(u) >= 0; u = tree.successor(u)) count++;
+        int[] edges = new int[count];
+        int current = v;
+        for (int i = 0; i < count; i++) {
+            int next = tree.successor(current);
+            edges[i] = cheapestEdge(current, next);
+            current = next;
+        }
+        return edges;
+    }
+
+    // The cheapest of possibly several parallel edge slots from u to v
+    private int cheapestEdge(int u, int v) {
+        int best = -1;
+        for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+            if (graph.target(e) == v && (best < 0 || weights[e] < weights[best])) best = e;
+        }
+        return best;
+    }
+
+    private void penalize(double[] penalized, int[] edges) {
+        for (int e : edges) penalized[e] *= PENALTY_FACTOR;
+    }
+
+    // True if the route shares more than maxOverlap of its length with an accepted route
+    private boolean overlapsAny(Route route, List<Route> accepted, double maxOverlap) {
+        for (Route other : accepted) {
+            Set<Integer> otherEdges = new HashSet<>(key(other.edges));
+            double shared = 0.0;
+            for (int e : route.edges) {
+                if (otherEdges.contains(e)) shared += weights[e];
+            }
+            if (route.length > 0.0 && shared / route.length > maxOverlap) return true;
+            if (Arrays.equals(route.edges, other.edges)) return true;
+        }
+        return false;
+    }
+
+    private static boolean sharesRoot(int[] a, int[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            if (a[j] != b[j]) return false;
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private double length(int[] edges) {
+        double total = 0.0;
+        for (int e : edges) total += weights[e];
+        return total;
+    }
+
+    private static List<Integer> key(int[] edges) {
+        List<Integer> key = new ArrayList<>(edges.length);
+        for (int e : edges) key.add(e);
+        return key;
+    }
+
+    private PathFinder.SearchResult toResult(Route route) {
+        List<Node> path = new ArrayList<>(route.edges.length + 1);
+        path.add(graph.node(source));
+        for (int e : route.edges) path.add(graph.node(graph.target(e)));
+        return new PathFinder.SearchResult(path, route.length, settled);
+    }
+}
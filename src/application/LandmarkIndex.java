@@ -0,0 +1,226 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * ALT (A*, Landmarks, Triangle inequality) preprocessing for one graph snapshot and
+ * routing profile. For every landmark L it stores d(L, v) and d(v, L) for all nodes,
+ * which gives the lower bound
+ * d(v, t) >= max(d(L, t) - d(L, v), d(v, L) - d(t, L)).
+ * These bounds are much tighter than straight-line distance once terrain costs
+ * or water detours come into play.
+ *
+ * Indexes are built in the background; {@link #current} only hands out an index that
+ * matches the snapshot version a query runs on, and otherwise schedules a refresh.
+ */
+public final class LandmarkIndex implements DistanceBound {
+    private static final int DEFAULT_LANDMARKS = 8;
+
+    // Latest finished index per profile, plus the snapshot waiting to be processed
+    private static final Map<RoutingProfile, LandmarkIndex> READY = new ConcurrentHashMap<>();
+    private static final Map<RoutingProfile, GraphSnapshot> PENDING = new ConcurrentHashMap<>();
+    private static final Map<RoutingProfile, Long> BUILDING = new ConcurrentHashMap<>();
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "landmark-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long version;
+    private final RoutingProfile profile;
+    private final int[] landmarks;
+    private final double[][] fromLandmark;  // [landmark][v] = d(L, v)
+    private final double[][] toLandmark;    // [landmark][v] = d(v, L)
+
+    private LandmarkIndex(long version, RoutingProfile profile, int[] landmarks,
+                          double[][] fromLandmark, double[][] toLandmark) {
+        this.version = version;
+        this.profile = profile;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Returns a ready index for exactly this snapshot and profile, or null. A stale or
+     * missing index triggers a background rebuild, so callers can fall back to a weaker
+     * heuristic and pick up the landmarks on a later query.
+     */
+    public static LandmarkIndex current(GraphSnapshot snapshot, RoutingProfile profile) {
+        LandmarkIndex index = READY.get(profile);
+        if (index != null && index.version == snapshot.getVersion()) {
+            return index;
+        }
+        scheduleRebuild(snapshot, profile);
+        return null;
+    }
+
+    /**
+     * Queues a rebuild for the snapshot. Requests arriving while a build is running are
+     * coalesced so a burst of edits only costs one extra build on the newest snapshot.
+     */
+    public static void scheduleRebuild(GraphSnapshot snapshot, RoutingProfile profile) {
+        LandmarkIndex index = READY.get(profile);
+        if (index != null && index.version == snapshot.getVersion()) return;
+        Long building = BUILDING.get(profile);
+        if (building != null && building == snapshot.getVersion()) return;
+        if (PENDING.put(profile, snapshot) != null) return;  // a task is already queued
+
+        BUILDER.execute(() -> {
+            GraphSnapshot latest = PENDING.remove(profile);
+            if (latest == null) return;
+            BUILDING.put(profile, latest.getVersion());
+            try {
+                READY.put(profile, build(latest, profile, DEFAULT_LANDMARKS));
+            } finally {
+                BUILDING.remove(profile);
+            }
+        });
+    }
+
+    /**
+     * Selects landmarks and computes their distance tables. The two Dijkstra runs per
+     * landmark are independent and run in parallel on the common fork-join pool.
+     */
+    public static LandmarkIndex build(GraphSnapshot snapshot, RoutingProfile profile, int landmarkCount) {
+        int[] landmarks = selectLandmarks(snapshot, profile, landmarkCount);
+        double[] weights = snapshot.weights(profile);
+        double[][] from = new double[landmarks.length][];
+        double[][] to = new double[landmarks.length][];
+
+        IntStream.range(0, landmarks.length * 2).parallel().forEach(job -> {
+            int l = job / 2;
+            if (job % 2 == 0) {
+                from[l] = shortestDistances(snapshot, weights, landmarks[l], false);
+            } else {
+                to[l] = shortestDistances(snapshot, weights, landmarks[l], true);
+            }
+        });
+        return new LandmarkIndex(snapshot.getVersion(), profile, landmarks, from, to);
+    }
+
+    public long getVersion() { return version; }
+    public RoutingProfile getProfile() { return profile; }
+    public int landmarkCount() { return landmarks.length; }
+
+    @Override
+    public double lowerBound(int v, int t) {
+        double best = 0.0;
+        for (int l = 0; l < landmarks.length; l++) {
+            double[] from = fromLandmark[l];
+            double[] to = toLandmark[l];
+            // d(v,t) >= d(L,t) - d(L,v); if L reaches v but not t, v cannot reach t either
+            if (from[v] != Double.POSITIVE_INFINITY) {
+                best = Math.max(best, from[t] - from[v]);
+            }
+            // d(v,t) >= d(v,L) - d(t,L); if t reaches L but v does not, v cannot reach t
+            if (to[t] != Double.POSITIVE_INFINITY) {
+                best = Math.max(best, to[v] - to[t]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Perimeter landmarks (the passable nodes closest to the four corners of the map)
+     * followed by farthest-point picks: each next landmark is the passable node whose
+     * straight-line distance to all chosen landmarks is largest.
+     */
+    private static int[] selectLandmarks(GraphSnapshot snapshot, RoutingProfile profile, int count) {
+        int n = snapshot.nodeCount();
+        List<Integer> chosen = new ArrayList<>();
+        if (n == 0) return new int[0];
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int v = 0; v < n; v++) {
+            minX = Math.min(minX, snapshot.x(v));
+            minY = Math.min(minY, snapshot.y(v));
+            maxX = Math.max(maxX, snapshot.x(v));
+            maxY = Math.max(maxY, snapshot.y(v));
+        }
+        double[][] corners = {{minX, minY}, {maxX, minY}, {maxX, maxY}, {minX, maxY}};
+        for (double[] corner : corners) {
+            if (chosen.size() >= count) break;
+            int best = -1;
+            double bestDist = Double.MAX_VALUE;
+            for (int v = 0; v < n; v++) {
+                if (!profile.isPassable(snapshot.terrain(v))) continue;
+                double dx = snapshot.x(v) - corner[0];
+                double dy = snapshot.y(v) - corner[1];
+                double d = dx * dx + dy * dy;
+                if (d < bestDist) {
+                    bestDist = d;
+                    best = v;
+                }
+            }
+            if (best >= 0 && !chosen.contains(best)) chosen.add(best);
+        }
+        if (chosen.isEmpty()) return new int[0];
+
+        // Farthest-point sampling on straight-line distance
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.MAX_VALUE);
+        for (int landmark : chosen) {
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], snapshot.distance(v, landmark));
+            }
+        }
+        while (chosen.size() < count) {
+            int farthest = -1;
+            for (int v = 0; v < n; v++) {
+                if (!profile.isPassable(snapshot.terrain(v))) continue;
+                if (farthest < 0 || nearest[v] > nearest[farthest]) farthest = v;
+            }
+            if (farthest < 0 || nearest[farthest] == 0.0) break;
+            chosen.add(farthest);
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], snapshot.distance(v, farthest));
+            }
+        }
+        return chosen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Full single-source Dijkstra on the forward graph, or on the reverse graph when reverse is set
+    private static double[] shortestDistances(GraphSnapshot snapshot, double[] weights, int source, boolean reverse) {
+        int n = snapshot.nodeCount();
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[n];
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        dist[source] = 0.0;
+        queue.insertOrDecrease(source, 0.0);
+
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            settled[u] = true;
+            if (reverse) {
+                for (int r = snapshot.reverseStart(u); r < snapshot.reverseEnd(u); r++) {
+                    int v = snapshot.source(r);
+                    double d = dist[u] + weights[snapshot.forwardEdge(r)];
+                    if (!settled[v] && d < dist[v]) {
+                        dist[v] = d;
+                        queue.insertOrDecrease(v, d);
+                    }
+                }
+            } else {
+                for (int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++) {
+                    int v = snapshot.target(e);
+                    double d = dist[u] + weights[e];
+                    if (!settled[v] && d < dist[v]) {
+                        dist[v] = d;
+                        queue.insertOrDecrease(v, d);
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+}
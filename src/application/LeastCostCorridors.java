@@ -0,0 +1,280 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * Least-cost corridors between neighbouring {@link ForestPatches}. Movement is
+ * undirected and each step costs its length times the average terrain cost of the two
+ * nodes it joins, so a corridor costs the same in both directions; terrain the profile
+ * blocks (water, for {@link RoutingProfile#WILDLIFE_CORRIDOR}) is a barrier.
+ *
+ * Two patches are neighbours when their cost-allocation regions touch: one
+ * multi-source search from all forest labels every node with its cheapest patch, and
+ * every edge between differently labelled nodes joins two neighbours. Each pair then
+ * gets a search from either patch, run in parallel across pairs. Together they give
+ * the optimal corridor and its band: the nodes whose cheapest route from one patch to
+ * the other costs at most (1 + bandFraction) times the optimum.
+ */
+public final class LeastCostCorridors {
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    private final GraphSnapshot snapshot;
+    private final ForestPatches patches;
+    private final List<Corridor> corridors;
+    private final List<Corridor> spanning;
+
+    // Cheapest connection between two neighbouring patches
+    public static final class Corridor {
+        private final int patchA;
+        private final int patchB;
+        private final double cost;
+        private final List<Node> path;
+        private final List<Node> band;
+
+        private Corridor(int patchA, int patchB, double cost, List<Node> path, List<Node> band) {
+            this.patchA = patchA;
+            this.patchB = patchB;
+            this.cost = cost;
+            this.path = path;
+            this.band = band;
+        }
+
+        public int getPatchA() { return patchA; }
+        public int getPatchB() { return patchB; }
+        public double getCost() { return cost; }
+
+        // Optimal route from a boundary node of patch A to one of patch B
+        public List<Node> getPath() { return path; }
+
+        // Nodes outside both patches that lie on a near-optimal route, in no particular order
+        public List<Node> getBand() { return band; }
+
+        // The path as consecutive edges, e.g. for highlighting
+        public List<Edge> getEdges() {
+            List<Edge> edges = new ArrayList<>();
+            for (int i = 0; i + 1 < path.size(); i++) edges.add(new Edge(path.get(i), path.get(i + 1)));
+            return edges;
+        }
+    }
+
+    private LeastCostCorridors(GraphSnapshot snapshot, ForestPatches patches,
+                               List<Corridor> corridors, List<Corridor> spanning) {
+        this.snapshot = snapshot;
+        this.patches = patches;
+        this.corridors = corridors;
+        this.spanning = spanning;
+    }
+
+    public static LeastCostCorridors compute(GraphSnapshot snapshot, ForestPatches patches,
+                                             RoutingProfile profile, double bandFraction) {
+        return compute(snapshot, patches, profile, bandFraction, CancellationToken.NONE);
+    }
+
+    // Like the above; throws CancellationException once the token is cancelled
+    public static LeastCostCorridors compute(GraphSnapshot snapshot, ForestPatches patches,
+                                             RoutingProfile profile, double bandFraction,
+                                             CancellationToken token) {
+        double[] costs = stepCosts(snapshot, profile);
+        long[] pairs = neighbourPairs(snapshot, patches, costs);
+
+        Corridor[] found = new Corridor[pairs.length];
+        IntStream.range(0, pairs.length).parallel().forEach(i -> {
+            if (token.isCancelled()) return;
+            found[i] = corridor(snapshot, patches, costs, (int) (pairs[i] >>> 32), (int) pairs[i],
+                bandFraction);
+        });
+        if (token.isCancelled()) throw new CancellationException("Corridor search cancelled");
+
+        List<Corridor> corridors = new ArrayList<>();
+        for (Corridor corridor : found) {
+            if (corridor != null) corridors.add(corridor);
+        }
+        return new LeastCostCorridors(snapshot, patches, Collections.unmodifiableList(corridors),
+            Collections.unmodifiableList(spanningSubset(corridors, patches.patchCount())));
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+    public ForestPatches getPatches() { return patches; }
+
+    // One corridor per pair of neighbouring patches that can reach each other
+    public List<Corridor> getCorridors() { return corridors; }
+
+    // The cheapest corridors that still connect every group of reachable patches
+    public List<Corridor> getSpanningCorridors() { return spanning; }
+
+    /**
+     * Symmetric cost of every forward edge slot: the profile's cost of entering either
+     * end, averaged. Infinite if either end is impassable. Shared with {@link CurrentFlow},
+     * where the cost of a step is its resistance.
+     */
+    static double[] stepCosts(GraphSnapshot snapshot, RoutingProfile profile) {
+        double[] costs = new double[snapshot.edgeCount()];
+        IntStream.range(0, snapshot.nodeCount()).parallel().forEach(u -> {
+            for (int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++) {
+                int v = snapshot.target(e);
+                double length = snapshot.weight(e);
+                double into = profile.weight(length, snapshot.terrain(v), snapshot.cost(v));
+                double outOf = profile.weight(length, snapshot.terrain(u), snapshot.cost(u));
+                costs[e] = into == INF || outOf == INF ? INF : 0.5 * (into + outOf);
+            }
+        });
+        return costs;
+    }
+
+    // Pairs (a, b) with a < b of patches whose cost-allocation regions touch, packed as a << 32 | b
+    private static long[] neighbourPairs(GraphSnapshot snapshot, ForestPatches patches, double[] costs) {
+        int n = snapshot.nodeCount();
+        int[] owner = new int[n];
+        Arrays.fill(owner, -1);
+        double[] dist = new double[n];
+        Arrays.fill(dist, INF);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        for (int v = 0; v < n; v++) {
+            if (patches.patchOf(v) >= 0) {
+                owner[v] = patches.patchOf(v);
+                dist[v] = 0.0;
+                queue.insertOrDecrease(v, 0.0);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            for (int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++) {
+                relaxOwner(snapshot.target(e), u, costs[e], owner, dist, queue);
+            }
+            for (int r = snapshot.reverseStart(u); r < snapshot.reverseEnd(u); r++) {
+                relaxOwner(snapshot.source(r), u, costs[snapshot.forwardEdge(r)], owner, dist, queue);
+            }
+        }
+
+        long[] pairs = new long[16];
+        int count = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++) {
+                int a = owner[u];
+                int b = owner[snapshot.target(e)];
+                if (a < 0 || b < 0 || a == b || costs[e] == INF) continue;
+                if (count == pairs.length) pairs = Arrays.copyOf(pairs, count * 2);
+                pairs[count++] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+            }
+        }
+        return Arrays.stream(pairs, 0, count).sorted().distinct().toArray();
+    }
+
+    private static void relaxOwner(int v, int u, double cost, int[] owner, double[] dist, IndexedMinHeap queue) {
+        if (cost == INF) return;
+        double d = dist[u] + cost;
+        if (d < dist[v]) {
+            dist[v] = d;
+            owner[v] = owner[u];
+            queue.insertOrDecrease(v, d);
+        }
+    }
+
+    /**
+     * Corridor between patches a and b, or null if no passable route joins them. The
+     * search from a stops at the first node of b it settles, which fixes the optimum,
+     * and then keeps going until the band limit; the search from b covers the same
+     * range and picks up the band on the way. Neither search expands nodes inside its
+     * target patch.
+     */
+    private static Corridor corridor(GraphSnapshot snapshot, ForestPatches patches, double[] costs,
+                                     int a, int b, double bandFraction) {
+        SearchWorkspace workspace = SearchWorkspace.forThread(snapshot.nodeCount());
+        SearchWorkspace.Frontier fromA = workspace.forward();
+        SearchWorkspace.Frontier fromB = workspace.backward();
+
+        int end = costDistance(snapshot, patches, costs, fromA, a, b, INF, bandFraction, null, null);
+        if (end < 0) return null;
+        double optimum = fromA.dist(end);
+        List<Node> band = new ArrayList<>();
+        costDistance(snapshot, patches, costs, fromB, b, a, optimum * (1.0 + bandFraction), bandFraction, fromA, band);
+
+        List<Node> path = new ArrayList<>();
+        for (int v = end; v >= 0; v = fromA.prev(v)) path.add(snapshot.node(v));
+        Collections.reverse(path);
+        return new Corridor(a, b, optimum, path, band);
+    }
+
+    /**
+     * Multi-source Dijkstra from the boundary of patch source, up to the cost limit.
+     * Nodes inside the source patch are never entered and nodes of the target patch
+     * are settled but not expanded. Once the first target node is settled the limit
+     * drops to the band limit it implies; that node is returned, or -1 if there is
+     * none. If the opposite search is given, nodes outside both patches that are
+     * within the limit on both sides are added to band.
+     */
+    private static int costDistance(GraphSnapshot snapshot, ForestPatches patches, double[] costs,
+                                    SearchWorkspace.Frontier frontier, int source, int target,
+                                    double limit, double bandFraction,
+                                    SearchWorkspace.Frontier opposite, List<Node> band) {
+        IndexedMinHeap queue = frontier.queue();
+        for (int v : patches.patch(source).getBoundary()) {
+            frontier.label(v, 0.0, -1);
+            queue.insertOrDecrease(v, 0.0);
+        }
+        int end = -1;
+        while (!queue.isEmpty() && queue.peekKey() <= limit) {
+            int u = queue.poll();
+            frontier.close(u);
+            int patch = patches.patchOf(u);
+            if (patch == target) {
+                if (end < 0) {
+                    end = u;
+                    limit = Math.min(limit, frontier.dist(u) * (1.0 + bandFraction));
+                }
+                continue;
+            }
+            if (opposite != null && patch != source && opposite.isClosed(u)
+                    && frontier.dist(u) + opposite.dist(u) <= limit) {
+                band.add(snapshot.node(u));
+            }
+            for (int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++) {
+                relax(frontier, patches, source, snapshot.target(e), u, costs[e]);
+            }
+            for (int r = snapshot.reverseStart(u); r < snapshot.reverseEnd(u); r++) {
+                relax(frontier, patches, source, snapshot.source(r), u, costs[snapshot.forwardEdge(r)]);
+            }
+        }
+        return end;
+    }
+
+    private static void relax(SearchWorkspace.Frontier frontier, ForestPatches patches, int source,
+                              int v, int u, double cost) {
+        if (cost == INF || frontier.isClosed(v) || patches.patchOf(v) == source) return;
+        double d = frontier.dist(u) + cost;
+        if (d < frontier.dist(v)) {
+            frontier.label(v, d, u);
+            frontier.queue().insertOrDecrease(v, d);
+        }
+    }
+
+    // Kruskal over the corridors: the cheapest set that joins all patches it can
+    private static List<Corridor> spanningSubset(List<Corridor> corridors, int patchCount) {
+        List<Corridor> sorted = new ArrayList<>(corridors);
+        sorted.sort((x, y) -> Double.compare(x.cost, y.cost));  // stable, so ties keep pair order
+        int[] parent = new int[patchCount];
+        for (int p = 0; p < patchCount; p++) parent[p] = p;
+        List<Corridor> spanning = new ArrayList<>();
+        for (Corridor corridor : sorted) {
+            int ra = root(parent, corridor.patchA);
+            int rb = root(parent, corridor.patchB);
+            if (ra == rb) continue;
+            parent[ra] = rb;
+            spanning.add(corridor);
+        }
+        return spanning;
+    }
+
+    private static int root(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+}
@@ -1,5 +1,6 @@
 package application;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
@@ -17,13 +18,17 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import java.util.Optional;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -46,6 +51,14 @@ public class MainDashboard extends BorderPane {
     private VBox graphViewContainer;
     private boolean isOriginalImageVisible = true; // tracks original image visibility
     private boolean corridorsHighlighted = false;
+    private RoutingProfile routingProfile = RoutingProfile.SHORTEST_DISTANCE;
+    private List<Node> rangerPosts = new ArrayList<>(); // checkpoints from the last plan
+    private boolean showAlternatives = false; // path analysis draws ranked alternative routes
+    private IncrementalPlanner livePlanner;   // keeps the last analysed path up to date during edits
+    private IncrementalPlanner seedingPlanner; // next live planner, while its first search runs
+    private CancellationToken pathSearch = CancellationToken.NONE; // newest background path query
+    private static final long PATH_SEARCH_BUDGET_MS = 5000;
+    private CancellationToken analysis = CancellationToken.NONE;   // newest background map analysis
     
     private CriticalCorridorAnalyzer corridorAnalyzer = new CriticalCorridorAnalyzer();
     private static final double CONNECTION_DISTANCE = 50;
@@ -333,6 +346,8 @@ public class MainDashboard extends BorderPane {
     private void resetPathSelection() {
         startNode = null;
         endNode = null;
+        livePlanner = null;
+        seedingPlanner = null;
         currentMapViewer.clearMarkers();
         currentGraphView.clearNodeHighlights();
         showStatus("Path selection reset.");
@@ -409,13 +424,18 @@ public class MainDashboard extends BorderPane {
             corridorsHighlighted = false;
             showStatus("Highlights cleared");
         } else {
-            corridorAnalyzer.analyzeCriticalCorridors(
-                Graph.getInstance(),
-                currentGraphView,
-                currentMapViewer
-            );
-            corridorsHighlighted = true;
-            showStatus("Critical corridors highlighted");
+            GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+            showStatus("Searching for critical corridors...");
+            runAnalysis("Critical corridors",
+                token -> corridorAnalyzer.findCorridors(snapshot, token),
+                (corridors, millis) -> {
+                    corridorAnalyzer.highlightCorridors(corridors, Graph.getInstance(),
+                        currentGraphView, currentMapViewer);
+                    corridorsHighlighted = true;
+                    showStatus("Critical corridors highlighted: " + corridors.getSpanningCorridors().size()
+                        + " least-cost corridors between " + corridors.getPatches().patchCount()
+                        + " forest patches (" + millis + " ms)");
+                });
         }
     }
     
@@ -434,7 +454,16 @@ public class MainDashboard extends BorderPane {
         quickAccessBar.getChildren().clear();
 
         Button analyzePathsBtn = createQuickButton("Analyze Paths", "#2196F3");
-        analyzePathsBtn.setOnAction(e -> enablePathAnalysisMode());
+        analyzePathsBtn.setOnAction(e -> {
+            showAlternatives = false;
+            enablePathAnalysisMode();
+        });
+
+        Button alternativesBtn = createQuickButton("Alternative Routes", "#3F51B5");
+        alternativesBtn.setOnAction(e -> {
+            showAlternatives = true;
+            enablePathAnalysisMode();
+        });
 
         Button poacherPathsBtn = createQuickButton("Poacher Paths", "#FF5722");
         poacherPathsBtn.setOnAction(e -> {
@@ -443,10 +472,48 @@ public class MainDashboard extends BorderPane {
             highlightPoacherPaths();
         });
 		
+        // Routing profile used by path queries; weights are cached per profile on the graph snapshot
+        ComboBox<RoutingProfile> profileBox = new ComboBox<>();
+        profileBox.getItems().addAll(RoutingProfile.builtIn());
+        profileBox.setValue(routingProfile);
+        profileBox.setPrefHeight(50);
+        profileBox.setOnAction(e -> {
+            routingProfile = profileBox.getValue();
+            GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+            snapshot.weights(routingProfile);
+            LandmarkIndex.scheduleRebuild(snapshot, routingProfile);
+            showStatus("Routing profile: " + routingProfile.getName());
+        });
+
+        Button riskHeatmapBtn = createQuickButton("Risk Heatmap", "#E91E63");
+        riskHeatmapBtn.setOnAction(e -> {
+            clearAllHighlights();
+            showRiskHeatmap();
+        });
+
+        Button checkpointsBtn = createQuickButton("Ranger Checkpoints", "#607D8B");
+        checkpointsBtn.setOnAction(e -> {
+            clearAllHighlights();
+            showRangerCheckpoints();
+        });
+
+        Button incursionsBtn = createQuickButton("Simulate Incursions", "#795548");
+        incursionsBtn.setOnAction(e -> {
+            clearAllHighlights();
+            simulateIncursions();
+        });
+
+        Button currentFlowBtn = createQuickButton("Current Flow", "#009688");
+        currentFlowBtn.setOnAction(e -> {
+            clearAllHighlights();
+            showCurrentFlow();
+        });
+
         Button backBtn = createQuickButton("Back", "#9E9E9E");
         backBtn.setOnAction(e -> resetToDefaultQuickAccess());
 
-        quickAccessBar.getChildren().addAll(analyzePathsBtn, poacherPathsBtn, backBtn);
+        quickAccessBar.getChildren().addAll(analyzePathsBtn, alternativesBtn, poacherPathsBtn, riskHeatmapBtn, checkpointsBtn,
+            incursionsBtn, currentFlowBtn, profileBox, backBtn);
     }
     
 
@@ -506,6 +573,10 @@ public class MainDashboard extends BorderPane {
     private void resetGraph() {
         System.out.println("ResetGraph() called");  // Debug statement
         Graph.getInstance().resetToInitialState();
+        cancelPathSearch();
+        cancelAnalysis();   // results for the old graph must not be drawn on the reset one
+        livePlanner = null;   // the reset replaced the path's endpoints
+        seedingPlanner = null;
         
         if (currentGraphView != null) {
             System.out.println("Updating graph view");
@@ -586,13 +657,15 @@ public class MainDashboard extends BorderPane {
     private void setupNodeConversionHandler() {
         if (currentGraphView != null) {
             currentGraphView.enableNodeSelection(selectedNode -> {
+                cancelPathSearch();  // a running query would draw a path for the old terrain
                 if (currentNodeType.equals("remove")) {
                     removeNodeAndConnections(selectedNode);
                     currentGraphView.update(); // Full update needed for removal
+                    refreshLivePath();
                 } else if (selectedNode instanceof ImageNode) {
                     ImageNode imageNode = (ImageNode) selectedNode;
                     String oldType = imageNode.getType();
-                    imageNode.setType(currentNodeType);
+                    Graph.getInstance().setNodeType(imageNode, currentNodeType);
                     
                     // Determine if edges were modified (water-related changes)
                     boolean wasWater = oldType.equalsIgnoreCase("water");
@@ -609,6 +682,7 @@ public class MainDashboard extends BorderPane {
                     } else {
                         currentGraphView.updateNodeAppearance(imageNode); // Partial update
                     }
+                    refreshLivePath();
                 }
             });
         }
@@ -622,24 +696,16 @@ public class MainDashboard extends BorderPane {
 
     private void removeWaterConnections(Node node) {
         Graph graph = Graph.getInstance();
-        graph.getEdges().removeIf(edge -> 
-            edge.getFrom().equals(node) || edge.getTo().equals(node)
-        );
+        graph.removeEdgesOf(node);
     }
 
     private void connectToNearbyNodes(Node node) {
         Graph graph = Graph.getInstance();
-        for (Node other : graph.getNodes()) {
-            if (!other.equals(node) && !isWaterNode(other)) {
-                double dx = node.getX() - other.getX();
-                double dy = node.getY() - other.getY();
-                double distance = Math.sqrt(dx*dx + dy*dy);
-                
-                if (distance <= CONNECTION_DISTANCE) {
-                    graph.addEdge(new Edge(node, other));
-                    graph.addEdge(new Edge(other, node));
-                }
-            }
+        List<Node> nearby = graph.nodesWithin(node.getX(), node.getY(), CONNECTION_DISTANCE,
+            other -> !other.equals(node) && !isWaterNode(other));
+        for (Node other : nearby) {
+            graph.addEdge(new Edge(node, other));
+            graph.addEdge(new Edge(other, node));
         }
     }
 
@@ -706,21 +772,164 @@ public class MainDashboard extends BorderPane {
     private void executeDijkstra() {
         if (startNode != null && endNode != null) {
             corridorsHighlighted = false;
-            PathFinder pathFinder = new PathFinder();
-            List<Node> path = pathFinder.findShortestPath(startNode, endNode);
-            
-            // Clear previous highlights before showing new path
-            clearAllHighlights();
-            
-            if (!path.isEmpty()) {
-                getCurrentGraphView().highlightPath(path);
-                getCurrentMapViewer().highlightPath(path);
-            } else {
-                showStatus("No valid path exists! Path blocked by water.");
+            livePlanner = null;
+            seedingPlanner = null;
+            Node start = startNode;
+            Node end = endNode;
+            RoutingProfile profile = routingProfile;
+            GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+            if (showAlternatives) {
+                CancellationToken token = startPathSearch("Searching for alternative routes...");
+                Thread worker = new Thread(() -> {
+                    List<PathFinder.SearchResult> routes = new PathFinder(snapshot).diversePaths(start, end, 5,
+                        profile, 0.5, token);
+                    Platform.runLater(() -> showAlternativeRoutes(token, routes));
+                }, "path-search");
+                worker.setDaemon(true);
+                worker.start();
+                return;
+            }
+
+            // Terrain edits in note mode repair this path incrementally instead of re-planning;
+            // the planner's first search runs on the worker once the path is shown
+            IncrementalPlanner planner = new IncrementalPlanner(start, end, profile);
+            seedingPlanner = planner;
+
+            CancellationToken token = startPathSearch("Searching for a path...");
+
+            Thread worker = new Thread(() -> {
+                if (ContractionHierarchy.current(snapshot, profile) != null) {
+                    // Exact and fast once the hierarchy is ready
+                    PathFinder.SearchResult result = new PathFinder(snapshot).search(start, end,
+                        PathFinder.SearchMode.CONTRACTION_HIERARCHY, profile);
+                    Platform.runLater(() -> showSearchResult(token, result, 1.0, true));
+                } else {
+                    AnytimeSearch search = new AnytimeSearch(snapshot, profile);
+                    PathFinder.SearchResult result = search.search(start, end, token, new AnytimeSearch.Listener() {
+                        @Override
+                        public void onPath(PathFinder.SearchResult improved, double bound) {
+                            Platform.runLater(() -> showSearchResult(token, improved, bound, false));
+                        }
+
+                        @Override
+                        public void onProgress(int settledNodes, double epsilon) {
+                            Platform.runLater(() -> {
+                                if (token == pathSearch) {
+                                    showStatus(String.format("Searching... %,d nodes settled (epsilon %.1f)",
+                                        settledNodes, epsilon));
+                                }
+                            });
+                        }
+                    });
+                    double bound = search.getBound();
+                    Platform.runLater(() -> showSearchResult(token, result, bound, true));
+                }
+                // A cancelled query is not worth seeding, nor a planner worth installing
+                if (token.wasCancelled()) return;
+                planner.seed(snapshot);
+                Platform.runLater(() -> installLivePlanner(token, planner));
+            }, "path-search");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    // Starts tracking a new background path query; only the newest may update the views
+    private CancellationToken startPathSearch(String status) {
+        pathSearch.cancel();
+        CancellationToken token = CancellationToken.withBudget(PATH_SEARCH_BUDGET_MS);
+        pathSearch = token;
+        globalProgress.setVisible(true);
+        showStatus(status);
+        return token;
+    }
+
+    // Stops the running path query, if any, and drops whatever it still reports
+    private void cancelPathSearch() {
+        if (pathSearch == CancellationToken.NONE) return;
+        pathSearch.cancel();
+        pathSearch = CancellationToken.NONE;
+        globalProgress.setVisible(false);
+    }
+
+    // Shows a path from a background query unless a newer query has started since
+    private void showSearchResult(CancellationToken token, PathFinder.SearchResult result, double bound, boolean done) {
+        if (token != pathSearch) return;
+        if (done) {
+            pathSearch = CancellationToken.NONE;
+            globalProgress.setVisible(false);
+        }
+        if (!result.isFound()) {
+            if (done) {
+                clearAllHighlights();
+                showStatus(token.isCancelled() ? "No path found within the time budget"
+                    : "No valid path exists! Path blocked by water.");
             }
+            return;
+        }
+
+        // Clear previous highlights before showing new path
+        clearAllHighlights();
+        getCurrentGraphView().highlightPath(result.getPath());
+        getCurrentMapViewer().highlightPath(result.getPath());
+        if (bound <= 1.0) {
+            showStatus(String.format("Shortest path: length %.1f", result.getDistance()));
+        } else {
+            showStatus(String.format("%s path: length %.1f, at most %.1fx the shortest",
+                done ? "Best" : "Improving", result.getDistance(), bound));
+        }
+    }
+
+    // Takes over a seeded planner unless the selection changed meanwhile, and catches up on edits
+    private void installLivePlanner(CancellationToken token, IncrementalPlanner planner) {
+        if (token.wasCancelled() || planner != seedingPlanner) return;
+        seedingPlanner = null;
+        livePlanner = planner;
+        if (planner.getVersion() != Graph.getInstance().getModCount()) refreshLivePath();
+    }
+
+    /**
+     * Repairs the last analysed path after a note-mode edit and redraws it, re-expanding
+     * only the nodes around the edit. Once an edit removes an endpoint there is no path
+     * to repair, and the views are left alone.
+     */
+    private void refreshLivePath() {
+        if (livePlanner == null) return;
+        List<Node> path = livePlanner.update();
+        if (livePlanner.isEndpointRemoved()) {
+            livePlanner = null;
+            return;
+        }
+        currentGraphView.highlightPath(path);
+        currentMapViewer.highlightPath(path);
+        if (path.isEmpty()) {
+            showStatus("Edit blocks every path between the selected points");
+        } else {
+            showStatus(String.format("Path updated: length %.1f, %d nodes re-expanded",
+                livePlanner.getDistance(), livePlanner.getLastExpansions()));
         }
     }
     
+    // Up to five routes that share at most half their length, drawn best on top
+    private void showAlternativeRoutes(CancellationToken token, List<PathFinder.SearchResult> routes) {
+        if (token != pathSearch) return;
+        pathSearch = CancellationToken.NONE;
+        globalProgress.setVisible(false);
+        clearAllHighlights();
+        if (routes.isEmpty()) {
+            showStatus(token.isCancelled() ? "No path found within the time budget"
+                : "No valid path exists! Path blocked by water.");
+            return;
+        }
+        for (int layer = routes.size() - 1; layer >= 0; layer--) {
+            List<Node> path = routes.get(layer).getPath();
+            getCurrentGraphView().appendPathHighlight(path, layer);
+            getCurrentMapViewer().appendPathHighlight(path, layer);
+        }
+        showStatus("Showing " + routes.size() + " alternative routes"
+            + (token.isCancelled() ? " found within the time budget" : ""));
+    }
+
     private GridPane createMetricsGrid() {
         GridPane grid = new GridPane();
         grid.setHgap(30);
@@ -785,30 +994,31 @@ public class MainDashboard extends BorderPane {
             return;
         }
 
-        List<Node> edgeNodes = findEdgeNodes();
-        System.out.println("Selected " + edgeNodes.size() + " representative edge nodes");
+        // Representative entry points, at most 3 per side and spaced apart, so the
+        // paths spread over the map instead of bunching up at one stretch of border
+        GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+        int[] entryIds = findEdgeNodes().stream()
+            .mapToInt(snapshot::idOf)
+            .filter(id -> id >= 0)
+            .toArray();
 
         // Highlight critical node
         currentGraphView.highlightCriticalNode(criticalForest);
         System.out.println("Critical forest at: " + criticalForest.getX() + "," + criticalForest.getY());
 
-        // Find and sort paths by length
-        List<PathResult> allPaths = new ArrayList<>();
-        PathFinder finder = new PathFinder();
-        
-        for (Node edgeNode : edgeNodes) {
-            List<Node> path = finder.findShortestPath(edgeNode, criticalForest);
-            if (!path.isEmpty() && path.size() > 2) { // Filter trivial paths
-                allPaths.add(new PathResult(path, calculatePathLength(path)));
-            }
-        }
+        // One reverse search from the forest gives the path from every entry point
+        ShortestPathTree tree = ShortestPathTree.toTarget(snapshot, routingProfile,
+            snapshot.idOf(criticalForest), entryIds);
 
         // Select top 10 shortest paths
-        allPaths.sort(Comparator.comparingDouble(p -> p.length));
-        List<List<Node>> topPaths = allPaths.stream()
-            .limit(10)
-            .map(p -> p.path)
-            .collect(Collectors.toList());
+        List<List<Node>> topPaths = new ArrayList<>();
+        for (int entry : tree.rank(entryIds)) {
+            List<Node> path = tree.pathFrom(entry);
+            if (path.size() > 2) { // Filter trivial paths
+                topPaths.add(path);
+            }
+            if (topPaths.size() == 10) break;
+        }
 
         // Highlight selected paths
         topPaths.forEach(path -> {
@@ -819,26 +1029,6 @@ public class MainDashboard extends BorderPane {
         showStatus("Showing " + topPaths.size() + " most critical paths");
     }
 
-    private double calculatePathLength(List<Node> path) {
-        double length = 0;
-        for (int i = 0; i < path.size()-1; i++) {
-            Node a = path.get(i);
-            Node b = path.get(i+1);
-            length += Math.hypot(a.getX()-b.getX(), a.getY()-b.getY());
-        }
-        return length;
-    }
-
-    private static class PathResult {
-        List<Node> path;
-        double length;
-        
-        PathResult(List<Node> path, double length) {
-            this.path = path;
-            this.length = length;
-        }
-    }
-
     private Node findMostDenseForestNode() {
         double centerX = currentMapViewer.getImageWidth() / 2;
         double centerY = currentMapViewer.getImageHeight() / 2;
@@ -859,7 +1049,195 @@ public class MainDashboard extends BorderPane {
 
     
 
+    /**
+     * Scores every edge by how many cheapest perimeter-to-forest routes cross it
+     * (betweenness centrality) and shows the result as a heatmap. The computation runs
+     * on a background thread against a snapshot, so the UI stays responsive.
+     */
+    private void showRiskHeatmap() {
+        GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+        int[] sources = findPerimeterNodes().stream()
+            .mapToInt(snapshot::idOf)
+            .filter(id -> id >= 0)
+            .toArray();
+        int[] targets = IntStream.range(0, snapshot.nodeCount())
+            .filter(v -> snapshot.terrain(v) == GraphSnapshot.TERRAIN_FOREST)
+            .toArray();
+        if (sources.length == 0 || targets.length == 0) {
+            showStatus("Risk heatmap needs perimeter and forest nodes");
+            return;
+        }
+
+        RoutingProfile profile = routingProfile;
+        showStatus("Computing poaching risk from " + sources.length + " entry points...");
+        runAnalysis("Risk heatmap",
+            token -> BetweennessCentrality.compute(snapshot, profile, sources, targets, token).edgeHeat(),
+            (heat, millis) -> {
+                currentGraphView.showHeatmap(snapshot, heat);
+                currentMapViewer.showHeatmap(snapshot, heat);
+                showStatus("Poaching risk heatmap (" + millis + " ms)");
+            });
+    }
+
+    /**
+     * Runs a map analysis on a background thread and hands its result and running time
+     * in milliseconds to show on the FX thread. Only the newest analysis may update the
+     * views: starting another cancels the token of this one, and the result of a
+     * superseded analysis is dropped. The progress bar is hidden and a failure is
+     * reported whatever happens.
+     */
+    private <T> void runAnalysis(String name, Function<CancellationToken, T> work, BiConsumer<T, Long> show) {
+        analysis.cancel();
+        CancellationToken token = CancellationToken.create();
+        analysis = token;
+        globalProgress.setVisible(true);
+        Thread worker = new Thread(() -> {
+            try {
+                long started = System.nanoTime();
+                T result = work.apply(token);
+                long millis = (System.nanoTime() - started) / 1_000_000;
+                Platform.runLater(() -> {
+                    if (token == analysis) show.accept(result, millis);
+                });
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> {
+                    if (token == analysis) showStatus(name + " failed: " + e);
+                });
+            } finally {
+                Platform.runLater(() -> {
+                    if (token != analysis) return;
+                    analysis = CancellationToken.NONE;
+                    globalProgress.setVisible(false);
+                });
+            }
+        }, name.toLowerCase().replace(' ', '-'));
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Stops the running analysis, if any, and drops its result
+    private void cancelAnalysis() {
+        if (analysis == CancellationToken.NONE) return;
+        analysis.cancel();
+        analysis = CancellationToken.NONE;
+        globalProgress.setVisible(false);
+    }
+
+    /**
+     * Places ranger checkpoints on a minimum vertex cut between the map boundary and the
+     * core forest (forest nodes around the most central forest node), weighted by how hard
+     * each terrain is to guard. Runs on a background thread like the risk heatmap.
+     */
+    private void showRangerCheckpoints() {
+        Node criticalForest = findMostDenseForestNode();
+        if (criticalForest == null) {
+            showStatus("No core forest found!");
+            return;
+        }
+        GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+        int[] boundary = findPerimeterNodes().stream()
+            .mapToInt(snapshot::idOf)
+            .filter(id -> id >= 0)
+            .toArray();
+        double radius = 0.15 * Math.min(currentMapViewer.getImageWidth(), currentMapViewer.getImageHeight());
+        int[] core = IntStream.range(0, snapshot.nodeCount())
+            .filter(v -> snapshot.terrain(v) == GraphSnapshot.TERRAIN_FOREST)
+            .filter(v -> Math.hypot(snapshot.x(v) - criticalForest.getX(), snapshot.y(v) - criticalForest.getY()) <= radius)
+            .toArray();
+        if (boundary.length == 0 || core.length == 0) {
+            showStatus("Ranger checkpoints need boundary and core forest nodes");
+            return;
+        }
+
+        RoutingProfile profile = routingProfile;
+        showStatus("Placing ranger checkpoints...");
+        runAnalysis("Checkpoint planner",
+            token -> CheckpointPlanner.plan(snapshot, profile, boundary, core, token),
+            (plan, millis) -> {
+                rangerPosts = plan.getCheckpoints();
+                for (Node checkpoint : plan.getCheckpoints()) {
+                    currentGraphView.highlightCriticalNode(checkpoint);
+                    currentMapViewer.highlightCriticalNode(checkpoint);
+                }
+                showStatus(plan.getCheckpoints().size() + " ranger checkpoints block every route to the core forest"
+                    + " (cost " + plan.getTotalCost() + ")");
+            });
+    }
+
+    /**
+     * Runs a seeded Monte Carlo simulation of poacher incursions from random perimeter
+     * entry points and shows how likely each part of the map is to be crossed. Rangers
+     * from the last checkpoint plan, if any, can detect and stop incursions.
+     */
+    private void simulateIncursions() {
+        GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+        int[] entries = findPerimeterNodes().stream()
+            .mapToInt(snapshot::idOf)
+            .filter(id -> id >= 0)
+            .toArray();
+        if (entries.length == 0) {
+            showStatus("Incursion simulation needs perimeter nodes");
+            return;
+        }
+        int[] rangers = rangerPosts.stream()
+            .mapToInt(snapshot::idOf)
+            .filter(id -> id >= 0)
+            .toArray();
+
+        RoutingProfile profile = routingProfile;
+        showStatus("Simulating poacher incursions...");
+        runAnalysis("Incursion simulator",
+            token -> new IncursionSimulator(snapshot, profile)
+                .setIncursions(200_000)
+                .run(entries, rangers, token),
+            (result, millis) -> {
+                double[] heat = result.edgeHeat(snapshot);
+                currentGraphView.showHeatmap(snapshot, heat);
+                currentMapViewer.showHeatmap(snapshot, heat);
+                showStatus(String.format("%,d incursions: %.0f%% reached the forest, %.0f%% detected (%d ms)",
+                    result.getIncursions(), 100 * result.getReachedForestRate(),
+                    100 * result.getDetectionRate(), millis));
+            });
+    }
+
+    /**
+     * Circuit-theory connectivity between the largest forest patches, shown as a current
+     * density heatmap. Uses the wildlife corridor costs rather than the selected routing
+     * profile, like the critical corridors. Runs on a background thread.
+     */
+    private void showCurrentFlow() {
+        GraphSnapshot snapshot = Graph.getInstance().getSnapshot();
+        ForestPatches patches = ForestPatches.find(snapshot);
+        if (patches.patchCount() < 2) {
+            showStatus("Current flow needs at least two forest patches");
+            return;
+        }
+
+        showStatus("Solving current flow between forest patches...");
+        runAnalysis("Current flow",
+            token -> new CurrentFlow(snapshot, RoutingProfile.WILDLIFE_CORRIDOR).run(patches, token),
+            (flow, millis) -> {
+                double[] heat = flow.edgeHeat();
+                currentGraphView.showHeatmap(snapshot, heat);
+                currentMapViewer.showHeatmap(snapshot, heat);
+                int focal = flow.getFocalPatches().length;
+                String status = String.format("Current flow between %d forest patches (%d pairs, %,d solver iterations, %d ms)",
+                    focal, focal * (focal - 1) / 2, flow.getIterations(), millis);
+                if (flow.getUnconvergedPairs() > 0) {
+                    status += String.format(" - approximate: %d pairs did not converge", flow.getUnconvergedPairs());
+                }
+                showStatus(status);
+            });
+    }
+
     private List<Node> findEdgeNodes() {
+        // Select maximum 3 nodes per edge side
+        return selectRepresentativeEdges(findPerimeterNodes(),
+            currentMapViewer.getImageWidth(), currentMapViewer.getImageHeight());
+    }
+
+    // All nodes within 1% of the image border
+    private List<Node> findPerimeterNodes() {
         double imageWidth = currentMapViewer.getImageWidth();
         double imageHeight = currentMapViewer.getImageHeight();
         
@@ -867,15 +1245,12 @@ public class MainDashboard extends BorderPane {
         double xThreshold = imageWidth * 0.01;
         double yThreshold = imageHeight * 0.01;
         
-        List<Node> allEdges = Graph.getInstance().getNodes().stream()
+        return Graph.getInstance().getNodes().stream()
             .filter(n -> n.getX() <= xThreshold || 
                         n.getX() >= imageWidth - xThreshold ||
                         n.getY() <= yThreshold || 
                         n.getY() >= imageHeight - yThreshold)
             .collect(Collectors.toList());
-
-        // Select maximum 3 nodes per edge side
-        return selectRepresentativeEdges(allEdges, imageWidth, imageHeight);
     }
 
     private List<Node> selectRepresentativeEdges(List<Node> edges, double width, double height) {
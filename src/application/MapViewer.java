@@ -144,21 +144,11 @@ public class MapViewer {
     }
     
     private Node findNearestNode(double x, double y) {
-        Node closest = null;
-        double minDistance = Double.MAX_VALUE;
-        
-        for (Node node : Graph.getInstance().getNodes()) {
-            double dx = node.getX() - x;
-            double dy = node.getY() - y;
-            double dist = dx * dx + dy * dy;
-            
-            if (dist < minDistance) {
-                minDistance = dist;
-                closest = node;
-            }
-        }
-        
-        return minDistance < 100 ? closest : null; // 10px tolerance
+        Node closest = Graph.getInstance().nearestNode(x, y);
+        if (closest == null) return null;
+        double dx = closest.getX() - x;
+        double dy = closest.getY() - y;
+        return dx * dx + dy * dy < 100 ? closest : null; // 10px tolerance
     }
 
     public VBox getView() {
@@ -270,6 +260,11 @@ public class MapViewer {
                     Graph graph = Graph.getInstance();
                     ImageGraphBuilder.buildGraph(image, graph);
                     graph.saveInitialState(); // Save the initial state
+                    // Landmark tables are built in the background; queries use them once ready
+                    LandmarkIndex.scheduleRebuild(graph.getSnapshot(), RoutingProfile.SHORTEST_DISTANCE);
+                    // Contraction hierarchy for the unedited map, cached next to the image
+                    ContractionHierarchy.prepare(graph.getSnapshot(), RoutingProfile.SHORTEST_DISTANCE,
+                        ContractionHierarchy.cacheFile(file, RoutingProfile.SHORTEST_DISTANCE));
                     
                     onLoadComplete.run();
                 }
@@ -315,6 +310,21 @@ public class MapViewer {
         }
     }
 
+
+    // One of several ranked routes; see GraphView.appendPathHighlight(List, int)
+    public void appendPathHighlight(List<Node> path, int layer) {
+        if (path == null || path.size() < 2) return;
+        double scale = zoomLevel.get();
+        for (int i = 0; i < path.size() - 1; i++) {
+            Node n1 = path.get(i);
+            Node n2 = path.get(i + 1);
+            Line line = new Line(n1.getX() * scale, n1.getY() * scale, n2.getX() * scale, n2.getY() * scale);
+            line.setStroke(GraphView.layerColor(layer));
+            line.setStrokeWidth(Math.max(1.5, 4.0 - 0.5 * layer));
+            overlay.getChildren().add(line);
+        }
+    }
+
     
     // Shows an instructional message over the image with a fade-in and fade-out animation.
     public void showInstruction(String message, int displayMillis) {
@@ -342,6 +352,44 @@ public class MapViewer {
         overlay.getChildren().removeIf(node -> node instanceof Line || node instanceof Circle);
     }
     
+    // Gold ring around a node of special interest, e.g. a ranger checkpoint
+    public void highlightCriticalNode(Node node) {
+        double scale = zoomLevel.get();
+        Circle marker = new Circle(node.getX() * scale, node.getY() * scale, 10, Color.TRANSPARENT);
+        marker.setStroke(Color.GOLD);
+        marker.setStrokeWidth(3);
+        overlay.getChildren().add(marker);
+    }
+    
+    // Heatmap layer on the image; see GraphView.showHeatmap for the meaning of edgeHeat
+    public void showHeatmap(GraphSnapshot snapshot, double[] edgeHeat) {
+        clearHighlights();
+        double scale = zoomLevel.get();
+
+        for (int e : GraphView.hotEdges(edgeHeat)) {
+            int from = snapshot.tail(e);
+            int to = snapshot.target(e);
+            Line line = new Line(
+                snapshot.x(from) * scale,
+                snapshot.y(from) * scale,
+                snapshot.x(to) * scale,
+                snapshot.y(to) * scale
+            );
+            line.setStroke(GraphView.heatColor(edgeHeat[e]));
+            line.setStrokeWidth(1 + 3 * edgeHeat[e]);
+            overlay.getChildren().add(line);
+        }
+    }
+    
+    // Corridor band markers; see GraphView.highlightCorridorBand
+    public void highlightCorridorBand(Set<Node> band) {
+        double scale = zoomLevel.get();
+        for (Node node : band) {
+            overlay.getChildren().add(new Circle(node.getX() * scale, node.getY() * scale, 3,
+                CORRIDOR_COLOR.deriveColor(0, 1, 1, 0.35)));
+        }
+    }
+
     public void highlightMST(List<Edge> mstEdges, Set<Node> criticalWater) {
         clearHighlights();
         double scale = zoomLevel.get();
@@ -0,0 +1,163 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Dinic's maximum-flow algorithm on a directed network with integer capacities. Arcs are
+ * stored in flat arrays with each arc next to its reverse (arc ^ 1), so the residual
+ * graph needs no extra bookkeeping. Both the level BFS and the blocking-flow DFS are
+ * iterative, so long augmenting paths on large maps cannot overflow the stack.
+ */
+public final class MaxFlow {
+    public static final int INFINITE = Integer.MAX_VALUE / 2;
+
+    private final int vertexCount;
+    private int[] head;        // first arc leaving each vertex, or -1
+    private int[] next;        // next arc leaving the same vertex
+    private int[] to;
+    private int[] capacity;    // residual capacity
+    private int arcCount;
+
+    private final int[] level;
+    private final int[] current;  // next arc to try in the blocking-flow DFS
+
+    public MaxFlow(int vertexCount, int expectedArcs) {
+        this.vertexCount = vertexCount;
+        head = new int[vertexCount];
+        Arrays.fill(head, -1);
+        int arcs = Math.max(2, expectedArcs * 2);
+        next = new int[arcs];
+        to = new int[arcs];
+        capacity = new int[arcs];
+        level = new int[vertexCount];
+        current = new int[vertexCount];
+    }
+
+    public int vertexCount() { return vertexCount; }
+
+    // Adds the arc u -> v with the given capacity and returns its index
+    public int addArc(int u, int v, int cap) {
+        if (arcCount + 2 > to.length) {
+            int size = to.length * 2;
+            next = Arrays.copyOf(next, size);
+            to = Arrays.copyOf(to, size);
+            capacity = Arrays.copyOf(capacity, size);
+        }
+        int arc = arcCount;
+        to[arc] = v;
+        capacity[arc] = cap;
+        next[arc] = head[u];
+        head[u] = arc;
+        to[arc + 1] = u;
+        capacity[arc + 1] = 0;
+        next[arc + 1] = head[v];
+        head[v] = arc + 1;
+        arcCount += 2;
+        return arc;
+    }
+
+    // Flow currently sent through an arc returned by addArc
+    public int flow(int arc) {
+        return capacity[arc ^ 1];
+    }
+
+    // Sends as much flow as possible from s to t and returns the total
+    public long maxFlow(int s, int t) {
+        return maxFlow(s, t, CancellationToken.NONE);
+    }
+
+    /**
+     * Like {@link #maxFlow(int, int)}, but checks the token after every augmentation and
+     * returns the flow sent so far once it is cancelled. That flow is not maximal.
+     */
+    public long maxFlow(int s, int t, CancellationToken token) {
+        long total = 0;
+        int[] stack = new int[vertexCount];   // arcs of the current DFS path
+        while (!token.isCancelled() && buildLevels(s, t)) {
+            System.arraycopy(head, 0, current, 0, vertexCount);
+            total += blockingFlow(s, t, stack, token);
+        }
+        return total;
+    }
+
+    /**
+     * Vertices reachable from s in the residual network after {@link #maxFlow}. The arcs
+     * from this set to the rest form a minimum cut.
+     */
+    public boolean[] sourceSide(int s) {
+        boolean[] seen = new boolean[vertexCount];
+        int[] queue = new int[vertexCount];
+        int tail = 0;
+        queue[tail++] = s;
+        seen[s] = true;
+        for (int headIndex = 0; headIndex < tail; headIndex++) {
+            int u = queue[headIndex];
+            for (int arc = head[u]; arc >= 0; arc = next[arc]) {
+                if (capacity[arc] > 0 && !seen[to[arc]]) {
+                    seen[to[arc]] = true;
+                    queue[tail++] = to[arc];
+                }
+            }
+        }
+        return seen;
+    }
+
+    private boolean buildLevels(int s, int t) {
+        Arrays.fill(level, -1);
+        int[] queue = new int[vertexCount];
+        int tail = 0;
+        queue[tail++] = s;
+        level[s] = 0;
+        for (int headIndex = 0; headIndex < tail; headIndex++) {
+            int u = queue[headIndex];
+            for (int arc = head[u]; arc >= 0; arc = next[arc]) {
+                int v = to[arc];
+                if (capacity[arc] > 0 && level[v] < 0) {
+                    level[v] = level[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return level[t] >= 0;
+    }
+
+    // Augments along level-increasing paths until s and t are separated in the level graph
+    private long blockingFlow(int s, int t, int[] stack, CancellationToken token) {
+        long total = 0;
+        int depth = 0;
+        int u = s;
+        while (true) {
+            if (u == t) {
+                // Augment by the bottleneck and retreat to the tail of the first saturated arc
+                int bottleneck = INFINITE;
+                for (int i = 0; i < depth; i++) bottleneck = Math.min(bottleneck, capacity[stack[i]]);
+                int retreat = -1;
+                for (int i = 0; i < depth; i++) {
+                    capacity[stack[i]] -= bottleneck;
+                    capacity[stack[i] ^ 1] += bottleneck;
+                    if (retreat < 0 && capacity[stack[i]] == 0) retreat = i;
+                }
+                total += bottleneck;
+                if (token.isCancelled()) return total;
+                depth = retreat;
+                u = depth == 0 ? s : to[stack[depth - 1]];
+                continue;
+            }
+
+            int arc = current[u];
+            while (arc >= 0 && (capacity[arc] == 0 || level[to[arc]] != level[u] + 1)) arc = next[arc];
+            current[u] = arc;
+            if (arc >= 0) {
+                stack[depth++] = arc;
+                u = to[arc];
+            } else {
+                // Dead end: drop u from the level graph and back up one arc
+                level[u] = -1;
+                if (depth == 0) return total;
+                depth--;
+                u = to[stack[depth] ^ 1];
+                current[u] = next[current[u]];
+            }
+        }
+    }
+}
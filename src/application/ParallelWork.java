@@ -0,0 +1,54 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Runs independent tasks on the common fork-join pool with one accumulator per worker
+ * slot. Each slot creates its accumulator only once it gets a task, then keeps pulling
+ * task indices from a shared counter until none are left, which balances uneven tasks.
+ * The accumulators are handed back for the caller to merge; unlike thread-local state
+ * in pool threads, nothing outlives the call.
+ */
+final class ParallelWork {
+    private ParallelWork() {}
+
+    // One slot per thread of the common pool
+    static int defaultWorkers() {
+        return ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    /**
+     * Runs tasks 0 .. tasks - 1 on at most workers slots, a single one running on the
+     * calling thread, and returns the accumulators of the slots that got work.
+     */
+    static <A> List<A> run(int tasks, int workers, Supplier<A> newAccumulator, ObjIntConsumer<A> task) {
+        int slots = Math.max(1, Math.min(tasks, workers));
+        Object[] accumulators = new Object[slots];
+        AtomicInteger next = new AtomicInteger();
+        IntStream range = IntStream.range(0, slots);
+        if (slots > 1) range = range.parallel();
+        range.forEach(slot -> {
+            int t = next.getAndIncrement();
+            if (t >= tasks) return;
+            A accumulator = newAccumulator.get();
+            for (; t < tasks; t = next.getAndIncrement()) task.accept(accumulator, t);
+            accumulators[slot] = accumulator;
+        });
+
+        List<A> used = new ArrayList<>();
+        for (Object accumulator : accumulators) {
+            if (accumulator != null) {
+                @SuppressWarnings("unchecked")
+                A typed = (A) accumulator;
+                used.add(typed);
+            }
+        }
+        return used;
+    }
+}
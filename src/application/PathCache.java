@@ -0,0 +1,156 @@
+package application;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bounded LRU cache of path query results keyed by start, end and routing profile.
+ * Every entry remembers the graph version it was computed at. When the graph has
+ * changed since, the {@link Graph} change log decides whether the entry survives:
+ * removed edges, removed nodes and terrain that became more expensive cannot create a
+ * shorter path, so the entry stays valid unless one of those edits touched a node on
+ * its path. Added edges, cheaper terrain and resets always invalidate it.
+ *
+ * The key has no search mode, since every mode finds the same distance. A hit
+ * therefore reports zero settled nodes rather than the work of whichever mode filled
+ * the entry.
+ */
+public final class PathCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long revalidations;
+    private long invalidations;
+
+    public PathCache(int capacity) {
+        this.capacity = capacity;
+        // Access order turns the map into an LRU list; the eldest entry is evicted on overflow
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for the query if it is still valid for the graph's
+     * current version, or null. The result reports no settled nodes, as answering it
+     * settled none.
+     */
+    public synchronized PathFinder.SearchResult get(Node start, Node end, RoutingProfile profile, Graph graph) {
+        Key key = new Key(start, end, profile);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        long current = graph.getModCount();
+        if (entry.version != current) {
+            if (!survives(entry, graph.changesSince(entry.version), profile)) {
+                entries.remove(key);
+                invalidations++;
+                misses++;
+                return null;
+            }
+            entry.version = current;
+            revalidations++;
+        }
+        hits++;
+        return entry.hit;
+    }
+
+    /**
+     * Stores a result computed at the given graph version, normally the version of the
+     * snapshot it was searched on. Edits made since are checked on the next get, like
+     * for any older entry.
+     */
+    public synchronized void put(Node start, Node end, RoutingProfile profile, long version,
+                                 PathFinder.SearchResult result) {
+        entries.put(new Key(start, end, profile), new Entry(result, version));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    // Entries carried over to a newer graph version because no edit affected them
+    public synchronized long getRevalidations() { return revalidations; }
+
+    // Entries dropped because the graph changed in a way that could affect them
+    public synchronized long getInvalidations() { return invalidations; }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PathCache[size=%d, hits=%d, misses=%d, hit rate=%.1f%%, revalidated=%d, invalidated=%d]",
+            entries.size(), hits, misses, getHitRate() * 100, revalidations, invalidations);
+    }
+
+    private static boolean survives(Entry entry, List<GraphChange> changes, RoutingProfile profile) {
+        if (changes == null) return false;  // log no longer covers the entry's version
+        for (GraphChange change : changes) {
+            if (!change.isSubtractive(profile)) return false;
+            if (entry.pathNodes().contains(change.getNode())) return false;
+        }
+        return true;
+    }
+
+    private static final class Key {
+        final Node start;
+        final Node end;
+        final RoutingProfile profile;
+
+        Key(Node start, Node end, RoutingProfile profile) {
+            this.start = start;
+            this.end = end;
+            this.profile = profile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return start.equals(other.start) && end.equals(other.end) && profile.equals(other.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, profile);
+        }
+    }
+
+    private static final class Entry {
+        final PathFinder.SearchResult hit;
+        long version;
+        private Set<Node> pathNodes;
+
+        Entry(PathFinder.SearchResult result, long version) {
+            this.hit = new PathFinder.SearchResult(result.getPath(), result.getDistance(), 0);
+            this.version = version;
+        }
+
+        // Built lazily; only needed once the graph has changed
+        Set<Node> pathNodes() {
+            if (pathNodes == null) pathNodes = new HashSet<>(hit.getPath());
+            return pathNodes;
+        }
+    }
+}
@@ -1,164 +1,375 @@
 package application;
 
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class PathFinder {
     private static final double CONNECTION_DISTANCE = 50; // Pixels
-    
-	
-
-    private List<Edge> getValidEdges(Node node) {
-        List<Edge> validEdges = new ArrayList<>();
-        for (Edge edge : Graph.getInstance().getEdges()) {
-            if (edge.getFrom().equals(node) && !isWaterNode(edge.getTo())) {
-                validEdges.add(edge);
-            }
-        }
-        return validEdges;
+
+    // Below this scale the straight-line heuristic is too weak to be worth using
+    private static final double MIN_HEURISTIC_SCALE = 0.05;
+
+    // Results of recent queries on the shared graph; all search modes are exact, so any may answer
+    private static final PathCache CACHE = new PathCache(PathCache.DEFAULT_CAPACITY);
+
+    // Search strategy used for a point-to-point query
+    public enum SearchMode {
+        BIDIRECTIONAL_DIJKSTRA,
+        ASTAR,
+        BIDIRECTIONAL_ASTAR,
+        ALT,
+        BIDIRECTIONAL_ALT,
+        CONTRACTION_HIERARCHY
     }
 
-    private boolean isWaterNode(Node node) {
-        return (node instanceof ImageNode) && 
-              ((ImageNode) node).getType().equalsIgnoreCase("water");
+    // Path found by a query together with its length and how much work it took
+    public static class SearchResult {
+        private final List<Node> path;
+        private final double distance;
+        private final int settledNodes;
+
+        SearchResult(List<Node> path, double distance, int settledNodes) {
+            this.path = Collections.unmodifiableList(path);  // results may be shared through the cache
+            this.distance = distance;
+            this.settledNodes = settledNodes;
+        }
+
+        static SearchResult empty(int settledNodes) {
+            return new SearchResult(Collections.emptyList(), Double.POSITIVE_INFINITY, settledNodes);
+        }
+
+        public List<Node> getPath() { return path; }
+        public double getDistance() { return distance; }
+        public int getSettledNodes() { return settledNodes; }
+        public boolean isFound() { return !path.isEmpty(); }
     }
 
-    private List<Node> validateAndReconstructPath(Map<Node, Node> previous, Node end) {
-        List<Node> path = new ArrayList<>();
-        if (!previous.containsKey(end)) return path;
+    // One origin/destination pair of a batch
+    public static final class Query {
+        private final Node start;
+        private final Node end;
 
-        // Reconstruct path
-        Node current = end;
-        while (current != null) {
-            path.add(current);
-            current = previous.get(current);
+        public Query(Node start, Node end) {
+            this.start = start;
+            this.end = end;
         }
-        Collections.reverse(path);
 
-        // Verify path doesn't contain water nodes
-        return path.stream().noneMatch(this::isWaterNode) ? path : Collections.emptyList();
+        public Node getStart() { return start; }
+        public Node getEnd() { return end; }
+    }
+
+    // Receives batch results as they complete; called from worker threads
+    public interface ResultListener {
+        void onResult(int queryIndex, Query query, SearchResult result);
     }
-    
+
+    // Snapshot all queries run against, or null to follow the live graph
+    private final GraphSnapshot snapshot;
+
+    public PathFinder() {
+        this(null);
+    }
+
+    /**
+     * Creates a path finder pinned to an immutable snapshot. It never touches the live
+     * {@link Graph}, so it can be used from any thread while the graph is being edited.
+     */
+    public PathFinder(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
     public List<Node> findShortestPath(Node start, Node end) {
-        if (start == null || end == null) return Collections.emptyList();
-        if (start.equals(end)) return Collections.singletonList(start);
-
-        // Bidirectional search initialization
-        Map<Node, Double> forwardDist = new HashMap<>();
-        Map<Node, Double> backwardDist = new HashMap<>();
-        Map<Node, Node> forwardPrev = new HashMap<>();
-        Map<Node, Node> backwardPrev = new HashMap<>();
-        
-        Set<Node> forwardVisited = new HashSet<>();
-        Set<Node> backwardVisited = new HashSet<>();
-
-        PriorityQueue<Node> forwardQueue = new PriorityQueue<>(
-            Comparator.comparingDouble(n -> forwardDist.getOrDefault(n, Double.MAX_VALUE))
-        );
-        PriorityQueue<Node> backwardQueue = new PriorityQueue<>(
-            Comparator.comparingDouble(n -> backwardDist.getOrDefault(n, Double.MAX_VALUE))
-        );
-
-        // Initialize distances
-        forwardDist.put(start, 0.0);
-        backwardDist.put(end, 0.0);
-        forwardQueue.add(start);
-        backwardQueue.add(end);
-
-        Node collisionNode = null;
-        double shortestPath = Double.MAX_VALUE;
+        return findShortestPath(start, end, SearchMode.BIDIRECTIONAL_DIJKSTRA);
+    }
 
-        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
-            // Forward search
-            Node fCurrent = forwardQueue.poll();
-            forwardVisited.add(fCurrent);
-
-            for (Edge edge : getValidEdges(fCurrent)) {
-                Node neighbor = edge.getTo();
-                double newDist = forwardDist.get(fCurrent) + edge.getWeight();
-
-                if (!forwardVisited.contains(neighbor) && 
-                    newDist < forwardDist.getOrDefault(neighbor, Double.MAX_VALUE)) {
-                    
-                    forwardDist.put(neighbor, newDist);
-                    forwardPrev.put(neighbor, fCurrent);
-                    forwardQueue.remove(neighbor);
-                    forwardQueue.add(neighbor);
-                }
+    public List<Node> findShortestPath(Node start, Node end, SearchMode mode) {
+        return search(start, end, mode).getPath();
+    }
+
+    public SearchResult search(Node start, Node end, SearchMode mode) {
+        return search(start, end, mode, RoutingProfile.SHORTEST_DISTANCE);
+    }
+
+    /**
+     * Finds the cheapest path from start to end under the routing profile, using the given
+     * strategy. Terrain the profile cannot cross is never entered. The A* modes use
+     * straight-line distance as heuristic; if the profile's edge weights are not bounded
+     * below by that distance the query quietly falls back to Dijkstra. The ALT modes use
+     * landmark bounds when a {@link LandmarkIndex} for the current graph is ready, and
+     * behave like the A* modes while it is still being built. CONTRACTION_HIERARCHY answers
+     * from a prepared {@link ContractionHierarchy} and runs bidirectional ALT if none
+     * matches the current graph. Results are served from the shared {@link PathCache}
+     * while they are still valid for the graph.
+     */
+    public SearchResult search(Node start, Node end, SearchMode mode, RoutingProfile profile) {
+        if (start == null || end == null) return SearchResult.empty(0);
+        if (start.equals(end)) return new SearchResult(Collections.singletonList(start), 0.0, 0);
+        if (snapshot != null) return compute(snapshot, start, end, mode, profile);
+
+        Graph live = Graph.getInstance();
+        SearchResult cached = CACHE.get(start, end, profile, live);
+        if (cached != null) return cached;
+        GraphSnapshot current = live.getSnapshot();
+        SearchResult result = compute(current, start, end, mode, profile);
+        CACHE.put(start, end, profile, current.getVersion(), result);
+        return result;
+    }
+
+    // Cache shared by all PathFinder instances, exposed for hit/miss metrics
+    public static PathCache cache() {
+        return CACHE;
+    }
+
+    /**
+     * Runs all queries in parallel on the common fork-join pool and returns the results in
+     * query order. Every query sees the same snapshot: this finder's pinned one, or the
+     * live graph as of the call. Each worker thread reuses its own search workspace.
+     */
+    public List<SearchResult> searchAll(List<Query> queries, SearchMode mode, RoutingProfile profile) {
+        PathFinder pinned = pinned();
+        return IntStream.range(0, queries.size()).parallel()
+            .mapToObj(i -> pinned.search(queries.get(i).getStart(), queries.get(i).getEnd(), mode, profile))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Like {@link #searchAll(List, SearchMode, RoutingProfile)}, but hands each result to the
+     * listener as soon as it is ready, in completion order. Returns when all queries are done.
+     */
+    public void searchAll(List<Query> queries, SearchMode mode, RoutingProfile profile, ResultListener listener) {
+        PathFinder pinned = pinned();
+        IntStream.range(0, queries.size()).parallel().forEach(i -> {
+            Query query = queries.get(i);
+            listener.onResult(i, query, pinned.search(query.getStart(), query.getEnd(), mode, profile));
+        });
+    }
+
+    /**
+     * Anytime search from start to end: reports a path within a few times the optimum
+     * quickly and keeps improving it until it is optimal or the token stops the search.
+     * Returns the best path found. See {@link AnytimeSearch}.
+     */
+    public SearchResult searchAnytime(Node start, Node end, RoutingProfile profile,
+                                      CancellationToken token, AnytimeSearch.Listener listener) {
+        if (start == null || end == null) return SearchResult.empty(0);
+        GraphSnapshot graph = snapshot != null ? snapshot : Graph.getInstance().getSnapshot();
+        return new AnytimeSearch(graph, profile).search(start, end, token, listener);
+    }
+
+    /**
+     * The k shortest loopless paths from start to end under the profile, shortest first,
+     * found with Yen's algorithm (see {@link KShortestPaths}). Fewer are returned if the
+     * graph has fewer distinct paths. Alternatives are not cached.
+     */
+    public List<SearchResult> kShortestPaths(Node start, Node end, int k, RoutingProfile profile) {
+        KShortestPaths paths = alternatives(start, end, profile, CancellationToken.NONE);
+        return paths == null ? Collections.emptyList() : paths.yen(k);
+    }
+
+    /**
+     * Up to k alternative paths from start to end that share at most maxOverlap (0 to 1)
+     * of their length with each other, shortest first. Uses the penalty method, which is
+     * much faster than {@link #kShortestPaths} on long routes but not exact.
+     */
+    public List<SearchResult> diversePaths(Node start, Node end, int k, RoutingProfile profile, double maxOverlap) {
+        return diversePaths(start, end, k, profile, maxOverlap, CancellationToken.NONE);
+    }
+
+    // Like the above, but stops once the token is cancelled and returns the routes found so far
+    public List<SearchResult> diversePaths(Node start, Node end, int k, RoutingProfile profile, double maxOverlap,
+                                           CancellationToken token) {
+        KShortestPaths paths = alternatives(start, end, profile, token);
+        return paths == null ? Collections.emptyList() : paths.diverse(k, maxOverlap);
+    }
+
+    private KShortestPaths alternatives(Node start, Node end, RoutingProfile profile, CancellationToken token) {
+        GraphSnapshot graph = snapshot != null ? snapshot : Graph.getInstance().getSnapshot();
+        int s = start == null ? -1 : graph.idOf(start);
+        int t = end == null ? -1 : graph.idOf(end);
+        if (s < 0 || t < 0 || s == t) return null;
+        if (!profile.isPassable(graph.terrain(s)) || !profile.isPassable(graph.terrain(t))) return null;
+        return new KShortestPaths(graph, profile, s, t, token);
+    }
+
+    // This finder if it is pinned, otherwise one pinned to the current state of the live graph
+    private PathFinder pinned() {
+        return snapshot != null ? this : new PathFinder(Graph.getInstance().getSnapshot());
+    }
+
+    private SearchResult compute(GraphSnapshot graph, Node start, Node end, SearchMode mode, RoutingProfile profile) {
+        int s = graph.idOf(start);
+        int t = graph.idOf(end);
+        if (s < 0 || t < 0) return SearchResult.empty(0);
+        if (!profile.isPassable(graph.terrain(s)) || !profile.isPassable(graph.terrain(t))) {
+            return SearchResult.empty(0);
+        }
+
+        if (mode == SearchMode.CONTRACTION_HIERARCHY) {
+            ContractionHierarchy hierarchy = ContractionHierarchy.current(graph, profile);
+            if (hierarchy != null) return hierarchy.query(graph, s, t);
+            mode = SearchMode.BIDIRECTIONAL_ALT;
+        }
+
+        double[] weights = graph.weights(profile);
+        DistanceBound bound = distanceBound(graph, mode, profile);
+        boolean bidirectional = mode == SearchMode.BIDIRECTIONAL_DIJKSTRA ||
+            mode == SearchMode.BIDIRECTIONAL_ASTAR || mode == SearchMode.BIDIRECTIONAL_ALT;
+        if (bidirectional || bound == null) {
+            return bidirectionalSearch(graph, weights, s, t, bound);
+        }
+        return aStar(graph, weights, s, t, bound);
+    }
+
+    // Heuristic for the mode, or null when the search should run as plain Dijkstra
+    static DistanceBound distanceBound(GraphSnapshot graph, SearchMode mode, RoutingProfile profile) {
+        if (mode == SearchMode.BIDIRECTIONAL_DIJKSTRA) return null;
+
+        double scale = graph.heuristicScale(profile);
+        DistanceBound euclidean = scale >= MIN_HEURISTIC_SCALE ?
+            (from, to) -> scale * graph.distance(from, to) : null;
+        if (mode == SearchMode.ALT || mode == SearchMode.BIDIRECTIONAL_ALT) {
+            LandmarkIndex landmarks = LandmarkIndex.current(graph, profile);
+            if (landmarks != null) {
+                // The maximum of two consistent bounds is still consistent
+                return euclidean == null ? landmarks :
+                    (from, to) -> Math.max(landmarks.lowerBound(from, to), euclidean.lowerBound(from, to));
             }
+        }
+        return euclidean;
+    }
+
+    // Unidirectional A* guided by a lower bound on the remaining distance to the target
+    private SearchResult aStar(GraphSnapshot graph, double[] weights, int s, int t, DistanceBound bound) {
+        SearchWorkspace.Frontier search = SearchWorkspace.forThread(graph.nodeCount()).forward();
+        IndexedMinHeap open = search.queue();
+        search.label(s, 0.0, -1);
+        open.insertOrDecrease(s, bound.lowerBound(s, t));
+        int settled = 0;
 
-            // Backward search
-            Node bCurrent = backwardQueue.poll();
-            backwardVisited.add(bCurrent);
-
-            for (Edge edge : getValidEdgesReverse(bCurrent)) {
-                Node neighbor = edge.getFrom();  // Reverse direction
-                double newDist = backwardDist.get(bCurrent) + edge.getWeight();
-
-                if (!backwardVisited.contains(neighbor) && 
-                    newDist < backwardDist.getOrDefault(neighbor, Double.MAX_VALUE)) {
-                    
-                    backwardDist.put(neighbor, newDist);
-                    backwardPrev.put(neighbor, bCurrent);
-                    backwardQueue.remove(neighbor);
-                    backwardQueue.add(neighbor);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            settled++;
+            if (current == t) {
+                return new SearchResult(reconstructPath(graph, search, null, t, -1), search.dist(t), settled);
+            }
+            search.close(current);
+
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                if (weights[e] == Double.POSITIVE_INFINITY) continue;
+                int neighbor = graph.target(e);
+                double newDist = search.dist(current) + weights[e];
+                // The heuristic is consistent, so closed nodes never improve
+                if (!search.isClosed(neighbor) && newDist < search.dist(neighbor)) {
+                    double remaining = bound.lowerBound(neighbor, t);
+                    if (remaining == Double.POSITIVE_INFINITY) continue;  // cannot reach t
+                    search.label(neighbor, newDist, current);
+                    open.insertOrDecrease(neighbor, newDist + remaining);
                 }
             }
+        }
+        return SearchResult.empty(settled);
+    }
 
-            // Check for collision
-            Optional<Node> potentialCollision = forwardVisited.stream()
-                .filter(backwardVisited::contains)
-                .min(Comparator.comparingDouble(n -> 
-                    forwardDist.get(n) + backwardDist.get(n)));
-
-            if (potentialCollision.isPresent()) {
-                double currentPathLength = forwardDist.get(potentialCollision.get()) + 
-                                          backwardDist.get(potentialCollision.get());
-                if (currentPathLength < shortestPath) {
-                    shortestPath = currentPathLength;
-                    collisionNode = potentialCollision.get();
+    /**
+     * Meet-in-the-middle search from both ends. Without a bound this is plain bidirectional
+     * Dijkstra; otherwise it is bidirectional A* with the average potential
+     * p(v) = (h_t(v) - h_s(v)) / 2, which keeps both directions consistent. Forward keys are
+     * dist + p and backward keys dist - p. Every relaxation that reaches a node labelled by
+     * the other side updates the best tentative length mu, and the search stops as soon as
+     * the two queue tops together reach mu.
+     */
+    private SearchResult bidirectionalSearch(GraphSnapshot graph, double[] weights, int s, int t, DistanceBound bound) {
+        SearchWorkspace workspace = SearchWorkspace.forThread(graph.nodeCount());
+        SearchWorkspace.Frontier forward = workspace.forward();
+        SearchWorkspace.Frontier backward = workspace.backward();
+        IndexedMinHeap forwardQueue = forward.queue();
+        IndexedMinHeap backwardQueue = backward.queue();
+
+        forward.label(s, 0.0, -1);
+        backward.label(t, 0.0, -1);
+        forwardQueue.insertOrDecrease(s, averagePotential(bound, s, s, t));
+        backwardQueue.insertOrDecrease(t, -averagePotential(bound, t, s, t));
+
+        // Best s-t length seen so far (mu), and the edge where the two searches met
+        double best = Double.MAX_VALUE;
+        int meetFrom = -1, meetTo = -1;
+        int settled = 0;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            if (forwardQueue.peekKey() + backwardQueue.peekKey() >= best) break;
+
+            if (forwardQueue.size() <= backwardQueue.size()) {
+                int current = forwardQueue.poll();
+                forward.close(current);
+                settled++;
+                for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                    if (weights[e] == Double.POSITIVE_INFINITY) continue;
+                    int neighbor = graph.target(e);
+                    double newDist = forward.dist(current) + weights[e];
+                    if (backward.isLabelled(neighbor) && newDist + backward.dist(neighbor) < best) {
+                        best = newDist + backward.dist(neighbor);
+                        meetFrom = current;
+                        meetTo = neighbor;
+                    }
+                    if (!forward.isClosed(neighbor) && newDist < forward.dist(neighbor)) {
+                        double potential = averagePotential(bound, neighbor, s, t);
+                        if (Double.isInfinite(potential)) continue;  // not on any s-t path
+                        forward.label(neighbor, newDist, current);
+                        forwardQueue.insertOrDecrease(neighbor, newDist + potential);
+                    }
+                }
+            } else {
+                int current = backwardQueue.poll();
+                backward.close(current);
+                settled++;
+                for (int r = graph.reverseStart(current); r < graph.reverseEnd(current); r++) {
+                    double weight = weights[graph.forwardEdge(r)];
+                    if (weight == Double.POSITIVE_INFINITY) continue;
+                    int neighbor = graph.source(r);  // Reverse direction
+                    double newDist = backward.dist(current) + weight;
+                    if (forward.isLabelled(neighbor) && newDist + forward.dist(neighbor) < best) {
+                        best = newDist + forward.dist(neighbor);
+                        meetFrom = neighbor;
+                        meetTo = current;
+                    }
+                    if (!backward.isClosed(neighbor) && newDist < backward.dist(neighbor)) {
+                        double potential = averagePotential(bound, neighbor, s, t);
+                        if (Double.isInfinite(potential)) continue;  // not on any s-t path
+                        backward.label(neighbor, newDist, current);
+                        backwardQueue.insertOrDecrease(neighbor, newDist - potential);
+                    }
                 }
             }
         }
 
-        return collisionNode != null ? 
-            reconstructPath(forwardPrev, backwardPrev, collisionNode) : 
-            Collections.emptyList();
+        return meetFrom >= 0 ?
+            new SearchResult(reconstructPath(graph, forward, backward, meetFrom, meetTo), best, settled) :
+            SearchResult.empty(settled);
     }
 
-    private List<Edge> getValidEdgesReverse(Node node) {
-        List<Edge> validEdges = new ArrayList<>();
-        for (Edge edge : Graph.getInstance().getEdges()) {
-            if (edge.getTo().equals(node) && !isWaterNode(edge.getFrom())) {
-                validEdges.add(edge);
-            }
+    private double averagePotential(DistanceBound bound, int v, int s, int t) {
+        if (bound == null) return 0.0;
+        double toTarget = bound.lowerBound(v, t);
+        double fromSource = bound.lowerBound(s, v);
+        if (toTarget == Double.POSITIVE_INFINITY || fromSource == Double.POSITIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
         }
-        return validEdges;
+        return 0.5 * (toTarget - fromSource);
     }
 
-    private List<Node> reconstructPath(Map<Node, Node> forwardPrev,
-                                      Map<Node, Node> backwardPrev,
-                                      Node collisionNode) {
+    // Joins the forward chain ending at meetFrom with the backward chain starting at meetTo
+    private List<Node> reconstructPath(GraphSnapshot graph, SearchWorkspace.Frontier forward,
+                                       SearchWorkspace.Frontier backward, int meetFrom, int meetTo) {
         LinkedList<Node> path = new LinkedList<>();
-        
-        // Build forward path
-        Node current = collisionNode;
-        while (current != null) {
-            path.addFirst(current);
-            current = forwardPrev.get(current);
+        for (int current = meetFrom; current >= 0; current = forward.prev(current)) {
+            path.addFirst(graph.node(current));
         }
-        
-        // Build backward path (excluding collision node)
-        current = backwardPrev.get(collisionNode);
-        while (current != null) {
-            path.addLast(current);
-            current = backwardPrev.get(current);
+        for (int current = meetTo; current >= 0; current = backward.prev(current)) {
+            path.addLast(graph.node(current));
         }
-        
-        // Verify path doesn't contain water nodes
-        return path.stream().noneMatch(this::isWaterNode) ? 
-            path : 
-            Collections.emptyList();
+        return new ArrayList<>(path);
     }
 
-   
-}
\ No newline at end of file
+
+}
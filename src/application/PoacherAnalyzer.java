@@ -2,177 +2,160 @@ package application;
 
 import java.util.*;
 
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.paint.Color;
+
 public class PoacherAnalyzer {
+    // Mask pixels darker or more transparent than this are not part of a road or fence
+    private static final double MASK_THRESHOLD = 0.5;
+
+    // Entry points currently attached to the graph, so they can be detached together
+    private final List<ImageNode> entryPoints = new ArrayList<>();
 
     /**
-     * Place one poacher on each edge of the map.
-     * This implementation calculates the bounding box of the graph based on
-     * existing nodes (which are built from the image in ImageGraphBuilder) and
-     * adds four new ImageNode objects with type "poacher". (You may want to adjust
-     * their cost or other properties as needed.)
+     * Place one poacher on each side of the map: four entry points spread evenly along
+     * the perimeter of the graph's bounding box, starting at the middle of the top side.
      */
     public void enablePoacherAnalysis() {
-        Graph graph = Graph.getInstance();
-        List<Node> nodes = graph.getNodes();
-        if (nodes.isEmpty()) return;
-        
-        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE, maxY = Double.MIN_VALUE;
-        
-        // Determine bounding box of the current graph
-        for (Node node : nodes) {
-            double x = node.getX();
-            double y = node.getY();
-            if (x < minX) minX = x;
-            if (y < minY) minY = y;
-            if (x > maxX) maxX = x;
-            if (y > maxY) maxY = y;
-        }
-        
-        // Create one poacher node on each side (center of top, bottom, left, and right)
-        ImageNode poacherTop = new ImageNode((minX + maxX) / 2, minY, 0, "poacher");
-        ImageNode poacherBottom = new ImageNode(((minX + maxX) / 2)+150, maxY, 0, "poacher");
-        ImageNode poacherLeft = new ImageNode(minX, ((minY + maxY) / 2) + 200, 0, "poacher");
-        ImageNode poacherRight = new ImageNode(maxX, (minY + maxY) / 2, 0, "poacher");
-        
-        // Add the poacher nodes to the graph
-        graph.addNode(poacherTop);
-        graph.addNode(poacherBottom);
-        graph.addNode(poacherLeft);
-        graph.addNode(poacherRight);
-    
-	    List<ImageNode> poachers = Arrays.asList(poacherTop, poacherBottom, poacherLeft, poacherRight);
-	    for (ImageNode poacher : poachers) {
-	    	Node nearest = findNearestNonPoacherNode(poacher,nodes);
-	    	if(nearest != null) {
-	    		//Connecting the poachernode with its neighbour
-	    		Edge edge = new Edge(poacher,nearest);
-	    		Edge reverseEgde = new Edge(nearest,poacher);
-	    		graph.addEdge(edge);
-	    		graph.addEdge(reverseEgde);
-	    	}
-	    }
+        enablePoacherAnalysis(4);
     }
+
+    // Replaces the current entry points by count points spread evenly along the perimeter
+    public List<ImageNode> enablePoacherAnalysis(int count) {
+        detachEntryPoints();
+        attachEntryPoints(generatePerimeterEntries(count));
+        return getEntryPoints();
+    }
+
+    public List<ImageNode> getEntryPoints() {
+        return Collections.unmodifiableList(entryPoints);
+    }
+
     /**
-     * Executes a modified Dijkstra algorithm starting from the given node in order
-     * to find the shortest path to the nearest critical point (here defined as a forest node).
-     * Traversal will avoid nodes marked as water.
-     *
-     * @param start The starting node (for example, one of the poacher nodes)
-     * @return a List of Node objects representing the shortest path found, 
-     *         or an empty list if no forest node is reachable.
+     * Creates count poacher nodes spaced evenly along the perimeter of the graph's
+     * bounding box, walking clockwise from the middle of the top side. The nodes are
+     * not added to the graph; see {@link #attachEntryPoints}.
      */
-    public List<Node> executePoacherDijstra(Node start) {
-        Graph graph = Graph.getInstance();
-        Set<Node> visited = new HashSet<>();
-        Map<Node, Double> dist = new HashMap<>();
-        Map<Node, Node> prev = new HashMap<>();
-
-        // Initialize distances to all nodes as infinity (or a very high number)
-        for (Node node : graph.getNodes()) {
-            dist.put(node, Double.MAX_VALUE);
-            prev.put(node, null);
-        }
-        dist.put(start, 0.0);
-
-        // Priority queue wrapper holding nodes with their current distance
-        PriorityQueue<NodeWrapper> queue = new PriorityQueue<>(Comparator.comparingDouble(nw -> nw.distance));
-        queue.offer(new NodeWrapper(start, 0.0));
+    public List<ImageNode> generatePerimeterEntries(int count) {
+        List<ImageNode> entries = new ArrayList<>();
+        List<Node> nodes = Graph.getInstance().getNodes();
+        if (nodes.isEmpty() || count <= 0) return entries;
 
-        while (!queue.isEmpty()) {
-            NodeWrapper current = queue.poll();
-            Node curNode = current.node;
-            if (visited.contains(curNode)) continue;
-            visited.add(curNode);
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Node node : nodes) {
+            minX = Math.min(minX, node.getX());
+            minY = Math.min(minY, node.getY());
+            maxX = Math.max(maxX, node.getX());
+            maxY = Math.max(maxY, node.getY());
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        double perimeter = 2 * (width + height);
 
-            // Check if the current node is a forest (our critical point)
-            if (curNode instanceof ImageNode && ((ImageNode) curNode).getType().equals("forest")) {
-                return reconstructPath(prev, curNode);
+        for (int i = 0; i < count; i++) {
+            // Distance along the perimeter, measured clockwise from the top-left corner
+            double d = (width / 2 + perimeter * i / count) % perimeter;
+            double x, y;
+            if (d < width) {
+                x = minX + d; y = minY;                           // top
+            } else if (d < width + height) {
+                x = maxX; y = minY + (d - width);                 // right
+            } else if (d < 2 * width + height) {
+                x = maxX - (d - width - height); y = maxY;        // bottom
+            } else {
+                x = minX; y = maxY - (d - 2 * width - height);    // left
             }
+            entries.add(new ImageNode(x, y, 0, "poacher"));
+        }
+        return entries;
+    }
 
-            // Explore valid outgoing edges from the current node.
-            for (Edge edge : getOutgoingEdges(curNode, graph)) {
-                Node neighbor = edge.getTo();
-                double alt = dist.get(curNode) + edge.getWeight();
-                if (alt < dist.get(neighbor)) {
-                    dist.put(neighbor, alt);
-                    prev.put(neighbor, curNode);
-                    queue.offer(new NodeWrapper(neighbor, alt));
+    /**
+     * Creates up to count poacher nodes on a road or fence mask: an image laid over the
+     * map in which bright, opaque pixels mark where poachers can get in. The mask is
+     * sampled every sampleStep pixels and the entry points are spread evenly over the
+     * marked samples in scan order. The sample step must be positive.
+     */
+    public List<ImageNode> generateMaskEntries(Image mask, int count, int sampleStep) {
+        if (sampleStep <= 0) throw new IllegalArgumentException("Sample step must be positive: " + sampleStep);
+        PixelReader reader = mask.getPixelReader();
+        int width = (int) mask.getWidth();
+        int height = (int) mask.getHeight();
+        List<double[]> marked = new ArrayList<>();
+        for (int y = 0; y < height; y += sampleStep) {
+            for (int x = 0; x < width; x += sampleStep) {
+                Color color = reader.getColor(x, y);
+                if (color.getOpacity() >= MASK_THRESHOLD && color.getBrightness() >= MASK_THRESHOLD) {
+                    marked.add(new double[] {x, y});
                 }
             }
         }
-        // No forest was reached
-        return new ArrayList<>();
+
+        List<ImageNode> entries = new ArrayList<>();
+        int taken = Math.min(count, marked.size());
+        for (int i = 0; i < taken; i++) {
+            double[] point = marked.get((int) ((long) i * marked.size() / taken));
+            entries.add(new ImageNode(point[0], point[1], 0, "poacher"));
+        }
+        return entries;
     }
 
     /**
-     * Returns all outgoing edges from the given node that lead to valid terrain.
-     * In our example, valid terrain excludes water (so that a poacher does not traverse water).
-     *
-     * @param node  the starting node
-     * @param graph the Graph instance
-     * @return a list of valid outgoing edges.
+     * Adds the entry points to the graph, each linked both ways to its nearest
+     * non-poacher node. Nearest nodes come from the graph's spatial index, and all
+     * nodes and edges go into the graph in a single batch.
      */
-    private List<Edge> getOutgoingEdges(Node node, Graph graph) {
+    public void attachEntryPoints(List<ImageNode> entries) {
+        Graph graph = Graph.getInstance();
         List<Edge> edges = new ArrayList<>();
-        for (Edge edge : graph.getEdges()) {
-            if (edge.getFrom().equals(node) && isValidTerrain(edge.getTo())) {
-                edges.add(edge);
+        for (ImageNode entry : entries) {
+            Node nearest = graph.nearestNode(entry.getX(), entry.getY(), node -> !isPoacher(node));
+            if (nearest != null) {
+                edges.add(new Edge(entry, nearest));
+                edges.add(new Edge(nearest, entry));
             }
         }
-        return edges;
+        graph.addAll(entries, edges);
+        entryPoints.addAll(entries);
+    }
+
+    // Removes all attached entry points and their edges from the graph in one batch
+    public void detachEntryPoints() {
+        if (entryPoints.isEmpty()) return;
+        Graph.getInstance().removeNodes(entryPoints);
+        entryPoints.clear();
     }
-    
+
     /**
-     * Checks if the given node represents valid (traversable) terrain.
-     * For instance, if the node is an ImageNode with type "water", then it is not valid.
+     * Executes a modified Dijkstra algorithm starting from the given node in order
+     * to find the shortest path to the nearest critical point (here defined as a forest node).
+     * Traversal will avoid nodes marked as water.
+     *
+     * @param start The starting node (for example, one of the poacher nodes)
+     * @return a List of Node objects representing the shortest path found, 
+     *         or an empty list if no forest node is reachable.
      */
-    private boolean isValidTerrain(Node node) {
-        if (node instanceof ImageNode) {
-            ImageNode imgNode = (ImageNode) node;
-            return !imgNode.getType().equals("water");
-        }
-        return true;
+    public List<Node> executePoacherDijstra(Node start) {
+        return executePoacherDijstra(start, RoutingProfile.SHORTEST_DISTANCE);
     }
 
     /**
-     * Reconstructs the shortest path from the starting node to the specified target node
-     * using the mapping of previous nodes.
+     * Same as {@link #executePoacherDijstra(Node)}, but edge costs and impassable terrain
+     * come from the given routing profile. The path is read from the profile's
+     * {@link ForestDistanceField}, which is computed once and then kept up to date with
+     * terrain edits, so each query is a walk along precomputed successor pointers.
      */
-    private List<Node> reconstructPath(Map<Node, Node> prev, Node target) {
-        List<Node> path = new LinkedList<>();
-        for (Node at = target; at != null; at = prev.get(at)) {
-            path.add(0, at);
-        }
-        return path;
+    public List<Node> executePoacherDijstra(Node start, RoutingProfile profile) {
+        ForestDistanceField field = ForestDistanceField.forGraph(Graph.getInstance(), profile);
+        int source = field.getSnapshot().idOf(start);
+        if (source < 0) return new ArrayList<>();
+        return field.pathFrom(source);
     }
-    
-    private Node findNearestNonPoacherNode(Node poacher, List<Node> allNodes) {
-    	Node nearest = null;
-    	double minDist = Double.MAX_VALUE;
-    	for (Node node: allNodes) {
-    		if (node instanceof ImageNode && ((ImageNode) node).getType().equals("poacher"))
-    			continue;
-    		double dx = poacher.getX()- node.getX();
-    		double dy = poacher.getY()- node.getY();
-    		double distance = Math.sqrt(dx*dx+dy*dy);
-    		if (distance < minDist) {
-    			minDist = distance;
-    			nearest= node;
-    		}
-    	}
-    	return nearest;
-    }
-
-    // Helper class used in the priority queue.
-    private static class NodeWrapper {
-        Node node;
-        double distance;
 
-        NodeWrapper(Node node, double distance) {
-            this.node = node;
-            this.distance = distance;
-        }
+    private static boolean isPoacher(Node node) {
+        return node instanceof ImageNode && "poacher".equals(((ImageNode) node).getType());
     }
 }
 
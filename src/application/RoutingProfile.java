@@ -0,0 +1,85 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Named rule for turning the pixel length of an edge into a travel cost. The cost of
+ * entering a node is its distance multiplied by a per-terrain factor and by the
+ * node's terrain cost from {@link ImageGraphBuilder} (forest 2.0, land 3.0, ...),
+ * blended in with {@code terrainCostWeight}. Terrain with an infinite factor is
+ * impassable.
+ *
+ * Weight arrays for a profile are computed once per {@link GraphSnapshot} and cached
+ * there, so switching profiles never rebuilds {@link Edge} objects.
+ */
+public final class RoutingProfile {
+    private static final double BLOCKED = Double.POSITIVE_INFINITY;
+
+    // Factors are indexed by the GraphSnapshot terrain codes:
+    // other, land, forest, water, grass, poacher
+
+    // Pure pixel distance, water impassable (the original behaviour)
+    public static final RoutingProfile SHORTEST_DISTANCE = new RoutingProfile("Shortest distance", 0.0,
+        new double[] {1.0, 1.0, 1.0, BLOCKED, 1.0, 1.0});
+
+    // Poachers on foot keep to cover and avoid open land, cannot cross water
+    public static final RoutingProfile POACHER_ON_FOOT = new RoutingProfile("Poacher on foot", 0.25,
+        new double[] {1.2, 1.3, 0.9, BLOCKED, 1.0, 1.0});
+
+    // Ranger vehicles are fast on open land and slow through forest
+    public static final RoutingProfile RANGER_VEHICLE = new RoutingProfile("Ranger vehicle", 0.5,
+        new double[] {1.5, 0.6, 3.0, BLOCKED, 0.8, 1.0});
+
+    // Elephants prefer forest and grass and can wade through water
+    public static final RoutingProfile ELEPHANT = new RoutingProfile("Elephant", 0.1,
+        new double[] {1.0, 1.0, 0.8, 2.5, 0.8, 1.0});
+
+    // Wildlife moving between habitat patches: the full terrain cost, water a barrier.
+    // Used for corridor analysis rather than offered as a route profile.
+    public static final RoutingProfile WILDLIFE_CORRIDOR = new RoutingProfile("Wildlife corridor", 1.0,
+        new double[] {1.0, 1.0, 1.0, BLOCKED, 1.0, 1.0});
+
+    private final String name;
+    private final double terrainCostWeight;
+    private final double[] terrainFactors;
+
+    public RoutingProfile(String name, double terrainCostWeight, double[] terrainFactors) {
+        this.name = name;
+        this.terrainCostWeight = terrainCostWeight;
+        this.terrainFactors = Arrays.copyOf(terrainFactors, terrainFactors.length);
+    }
+
+    public static List<RoutingProfile> builtIn() {
+        return Arrays.asList(SHORTEST_DISTANCE, POACHER_ON_FOOT, RANGER_VEHICLE, ELEPHANT);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isPassable(byte terrain) {
+        return factor(terrain) != BLOCKED;
+    }
+
+    /**
+     * Cost of travelling an edge of the given pixel length into a node with the given
+     * terrain code and terrain cost. Returns positive infinity for impassable terrain.
+     */
+    public double weight(double distance, byte terrainTo, double terrainCostTo) {
+        double factor = factor(terrainTo);
+        if (factor == BLOCKED) return BLOCKED;
+        // Water is classified with an infinite cost; passable profiles treat it as neutral
+        double cost = Double.isInfinite(terrainCostTo) || terrainCostTo < 1.0 ? 1.0 : terrainCostTo;
+        return distance * factor * (1.0 + terrainCostWeight * (cost - 1.0));
+    }
+
+    private double factor(byte terrain) {
+        return terrain >= 0 && terrain < terrainFactors.length ? terrainFactors[terrain] : 1.0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
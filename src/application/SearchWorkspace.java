@@ -0,0 +1,79 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per-thread scratch space for shortest-path searches. Distances, predecessors
+ * and closed flags live in primitive arrays sized to the largest graph seen so far, and
+ * a generation stamp marks which entries belong to the current query, so starting a new
+ * query is O(1) instead of refilling arrays or building hash maps.
+ *
+ * A workspace is only valid until the next query on the same thread; results must be
+ * copied out (as paths or distances) before starting another search.
+ */
+public final class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> LOCAL = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    private final Frontier forward = new Frontier();
+    private final Frontier backward = new Frontier();
+
+    private SearchWorkspace() {}
+
+    // Returns this thread's workspace, reset for a graph with the given number of nodes
+    public static SearchWorkspace forThread(int nodeCount) {
+        SearchWorkspace workspace = LOCAL.get();
+        workspace.forward.reset(nodeCount);
+        workspace.backward.reset(nodeCount);
+        return workspace;
+    }
+
+    public Frontier forward() { return forward; }
+    public Frontier backward() { return backward; }
+
+    // Labels and queue of one search direction
+    public static final class Frontier {
+        private double[] dist = new double[0];
+        private int[] prev = new int[0];
+        private int[] labelled = new int[0];
+        private int[] closed = new int[0];
+        private int generation;
+        private final IndexedMinHeap queue = new IndexedMinHeap(16);
+
+        private void reset(int nodeCount) {
+            if (dist.length < nodeCount) {
+                dist = new double[nodeCount];
+                prev = new int[nodeCount];
+                labelled = new int[nodeCount];
+                closed = new int[nodeCount];
+                generation = 0;
+            }
+            queue.clear();
+            queue.ensureCapacity(nodeCount);
+            if (++generation == Integer.MAX_VALUE) {
+                // Stamps wrapped around; clear them once and start over
+                Arrays.fill(labelled, 0);
+                Arrays.fill(closed, 0);
+                generation = 1;
+            }
+        }
+
+        public IndexedMinHeap queue() { return queue; }
+
+        public boolean isLabelled(int v) { return labelled[v] == generation; }
+
+        // Tentative distance, or Double.MAX_VALUE if v has not been reached in this query
+        public double dist(int v) { return labelled[v] == generation ? dist[v] : Double.MAX_VALUE; }
+
+        // Predecessor on the current search tree, or -1
+        public int prev(int v) { return labelled[v] == generation ? prev[v] : -1; }
+
+        public void label(int v, double distance, int predecessor) {
+            labelled[v] = generation;
+            dist[v] = distance;
+            prev[v] = predecessor;
+        }
+
+        public boolean isClosed(int v) { return closed[v] == generation; }
+        public void close(int v) { closed[v] = generation; }
+    }
+}
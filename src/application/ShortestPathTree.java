@@ -0,0 +1,137 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shortest paths from every node to one target, computed by a single Dijkstra run over
+ * the reverse adjacency of a {@link GraphSnapshot}. Answering the path or distance from
+ * any source afterwards is a walk along the tree, so ranking hundreds of entry points
+ * toward the same target costs one search instead of one search per entry point.
+ */
+public final class ShortestPathTree {
+    private final GraphSnapshot snapshot;
+    private final RoutingProfile profile;
+    private final int target;
+    private final double[] dist;   // d(v, target), or positive infinity
+    private final int[] next;      // successor of v on its path to the target, or -1
+    private final int settledNodes;
+
+    private ShortestPathTree(GraphSnapshot snapshot, RoutingProfile profile, int target,
+                             double[] dist, int[] next, int settledNodes) {
+        this.snapshot = snapshot;
+        this.profile = profile;
+        this.target = target;
+        this.dist = dist;
+        this.next = next;
+        this.settledNodes = settledNodes;
+    }
+
+    // Full tree toward the target
+    public static ShortestPathTree toTarget(GraphSnapshot snapshot, RoutingProfile profile, int target) {
+        return toTarget(snapshot, profile, target, null);
+    }
+
+    /**
+     * Tree toward the target that stops as soon as every given source is settled. Nodes
+     * farther away than the last source are left unreached. Pass null for a full tree.
+     */
+    public static ShortestPathTree toTarget(GraphSnapshot snapshot, RoutingProfile profile, int target, int[] sources) {
+        int n = snapshot.nodeCount();
+        double[] dist = new double[n];
+        int[] next = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(next, -1);
+        if (!profile.isPassable(snapshot.terrain(target))) {
+            return new ShortestPathTree(snapshot, profile, target, dist, next, 0);
+        }
+
+        boolean[] wanted = null;
+        int pending = 0;
+        if (sources != null) {
+            wanted = new boolean[n];
+            for (int source : sources) {
+                if (!wanted[source]) {
+                    wanted[source] = true;
+                    pending++;
+                }
+            }
+        }
+
+        double[] weights = snapshot.weights(profile);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        boolean[] settled = new boolean[n];
+        dist[target] = 0.0;
+        queue.insertOrDecrease(target, 0.0);
+        int settledCount = 0;
+
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            settled[v] = true;
+            settledCount++;
+            if (wanted != null && wanted[v] && --pending == 0) break;
+
+            for (int r = snapshot.reverseStart(v); r < snapshot.reverseEnd(v); r++) {
+                double w = weights[snapshot.forwardEdge(r)];
+                if (w == Double.POSITIVE_INFINITY) continue;  // v cannot be entered under this profile
+                int u = snapshot.source(r);
+                double d = dist[v] + w;
+                if (!settled[u] && d < dist[u]) {
+                    dist[u] = d;
+                    next[u] = v;
+                    queue.insertOrDecrease(u, d);
+                }
+            }
+        }
+        return new ShortestPathTree(snapshot, profile, target, dist, next, settledCount);
+    }
+
+    public int getTarget() { return target; }
+    public int getSettledNodes() { return settledNodes; }
+
+    // True if the source can be used as a start under the profile and reaches the target
+    public boolean reaches(int source) {
+        return dist[source] != Double.POSITIVE_INFINITY && profile.isPassable(snapshot.terrain(source));
+    }
+
+    public double distance(int source) {
+        return reaches(source) ? dist[source] : Double.POSITIVE_INFINITY;
+    }
+
+    // Next node on the tree path from v to the target, or -1 at the target or off the tree
+    int successor(int v) {
+        return next[v];
+    }
+
+    // Path from source to the target, or an empty list if the target is out of reach
+    public List<Node> pathFrom(int source) {
+        if (!reaches(source)) return new ArrayList<>();
+        List<Node> path = new ArrayList<>();
+        for (int v = source; v >= 0; v = next[v]) {
+            path.add(snapshot.node(v));
+        }
+        return path;
+    }
+
+    // Sources that reach the target, nearest first
+    public int[] rank(int[] sources) {
+        return Arrays.stream(sources)
+            .filter(this::reaches)
+            .distinct()
+            .boxed()
+            .sorted((a, b) -> Double.compare(dist[a], dist[b]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    // The k sources with the shortest paths to the target, with their paths
+    public List<PathFinder.SearchResult> topK(int[] sources, int k) {
+        int[] ranked = rank(sources);
+        List<PathFinder.SearchResult> result = new ArrayList<>();
+        for (int i = 0; i < ranked.length && i < k; i++) {
+            result.add(new PathFinder.SearchResult(pathFrom(ranked[i]), dist[ranked[i]], settledNodes));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid over node positions for nearest-node and radius queries. Each node is
+ * stored in the square cell that contains it; a nearest query scans rings of cells
+ * around the query point and stops once no unvisited cell can hold a closer node, so it
+ * touches only a handful of cells instead of every node on the map.
+ *
+ * Not thread-safe; callers that share an index must synchronize updates and queries.
+ */
+public final class SpatialIndex {
+    private final double cellSize;
+    private final Map<Long, List<Node>> cells = new HashMap<>();
+    private int size;
+
+    // Bounds of the occupied cells, so ring searches know when to give up
+    private int minCellX = Integer.MAX_VALUE, minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE, maxCellY = Integer.MIN_VALUE;
+
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public SpatialIndex(List<? extends Node> nodes, double cellSize) {
+        this(cellSize);
+        for (Node node : nodes) add(node);
+    }
+
+    public int size() { return size; }
+
+    public void add(Node node) {
+        int cx = cell(node.getX());
+        int cy = cell(node.getY());
+        cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(node);
+        size++;
+        minCellX = Math.min(minCellX, cx);
+        minCellY = Math.min(minCellY, cy);
+        maxCellX = Math.max(maxCellX, cx);
+        maxCellY = Math.max(maxCellY, cy);
+    }
+
+    // Removes the node if it is indexed at its current position; returns whether it was
+    public boolean remove(Node node) {
+        long key = key(cell(node.getX()), cell(node.getY()));
+        List<Node> bucket = cells.get(key);
+        if (bucket == null || !bucket.remove(node)) return false;
+        if (bucket.isEmpty()) cells.remove(key);
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        cells.clear();
+        size = 0;
+        minCellX = minCellY = Integer.MAX_VALUE;
+        maxCellX = maxCellY = Integer.MIN_VALUE;
+    }
+
+    // Closest node to (x, y), or null if the index is empty
+    public Node nearest(double x, double y) {
+        return nearest(x, y, node -> true);
+    }
+
+    // Closest node to (x, y) that passes the filter, or null if there is none
+    public Node nearest(double x, double y, Predicate<Node> filter) {
+        if (size == 0) return null;
+        int cx = cell(x);
+        int cy = cell(y);
+        // Rings beyond this one lie entirely outside the occupied cells
+        int maxRing = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy));
+
+        Node best = null;
+        double bestDistSq = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every point in ring r is at least (r - 1) cells away from the query point
+            double reach = Math.max(0, ring - 1) * cellSize;
+            if (best != null && reach * reach > bestDistSq) break;
+            for (int gx = cx - ring; gx <= cx + ring; gx++) {
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                    if (Math.max(Math.abs(gx - cx), Math.abs(gy - cy)) != ring) continue;  // ring border only
+                    List<Node> bucket = cells.get(key(gx, gy));
+                    if (bucket == null) continue;
+                    for (Node node : bucket) {
+                        double dx = node.getX() - x;
+                        double dy = node.getY() - y;
+                        double distSq = dx * dx + dy * dy;
+                        if (distSq < bestDistSq && filter.test(node)) {
+                            bestDistSq = distSq;
+                            best = node;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // All nodes within radius of (x, y), in no particular order
+    public List<Node> within(double x, double y, double radius) {
+        return within(x, y, radius, node -> true);
+    }
+
+    // Nodes within radius of (x, y) that pass the filter, in no particular order
+    public List<Node> within(double x, double y, double radius, Predicate<Node> filter) {
+        List<Node> result = new ArrayList<>();
+        double radiusSq = radius * radius;
+        for (int gx = cell(x - radius); gx <= cell(x + radius); gx++) {
+            for (int gy = cell(y - radius); gy <= cell(y + radius); gy++) {
+                List<Node> bucket = cells.get(key(gx, gy));
+                if (bucket == null) continue;
+                for (Node node : bucket) {
+                    double dx = node.getX() - x;
+                    double dy = node.getY() - y;
+                    if (dx * dx + dy * dy <= radiusSq && filter.test(node)) result.add(node);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}